@@ -0,0 +1,163 @@
+/**
+ * Letter index of one board, to check single words against it without a full search.
+ *
+ * <p>The index holds the cells of each letter as a bit mask and, for each letter, the mask of
+ * the letters found in a cell next to one of its cells; a letter only follows itself if two of
+ * its cells touch. {@link #find} first checks in one pass over the word that every letter is on
+ * the board often enough and that every pair of consecutive letters touches somewhere. Most
+ * words that can't be played stop there. The others are looked for with a DFS that only steps
+ * to neighbours holding the next letter.</p>
+ *
+ * <p>An index keeps scratch state for {@link #find}, so it must not be used by two threads at
+ * once.</p>
+ */
+public class BoardIndex {
+    private final int cols;                 // Board width
+    private final int cells;                // Number of cells
+    private final long[] neighbours;        // Bit mask of the cells adjacent to each cell
+    private final long[] letterCells;       // Cells holding each letter
+    private final int[] letterPairs;        // Letters next to each letter, bit b of entry a if some a touches some b
+    private final byte[] letters;           // Letters of the word being looked for, 'Q' stands for "QU"
+    private final int[] counts;             // Times each letter occurs in the word being looked for
+    private final byte[] path;              // Cells of the path being tried
+
+    /**
+     * Builds the index of a board.
+     *
+     * @param board The board, letters A-Z, at most 16 rows and columns and 64 cells.
+     * @throws IllegalArgumentException If the board size is not supported or its rows differ in length.
+     */
+    public BoardIndex(char[][] board) {
+        int rows = board.length;
+        cols = rows == 0 ? 0 : board[0].length;
+        BoggleSolver.checkSize(rows, cols);
+        cells = rows * cols;
+        neighbours = BoggleSolver.neighbours(rows, cols);
+        letterCells = new long[26];
+        letterPairs = new int[26];
+        letters = new byte[cells];
+        counts = new int[26];
+        path = new byte[cells];
+
+        int[] letterOf = new int[cells];
+        for (int i = 0; i < rows; i++) {
+            if (board[i].length != cols) {
+                throw new IllegalArgumentException("Expected " + cols + " columns, got " + board[i].length);
+            }
+            for (int j = 0; j < cols; j++) {
+                char c = board[i][j];
+                letterOf[i * cols + j] = 'A' <= c && c <= 'Z' ? c - 'A' : -1;
+                if (letterOf[i * cols + j] >= 0) {
+                    letterCells[c - 'A'] |= 1L << (i * cols + j);
+                }
+            }
+        }
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (letterOf[cell] < 0) {
+                continue;
+            }
+            for (long next = neighbours[cell]; next != 0; next &= next - 1) {
+                int other = letterOf[Long.numberOfTrailingZeros(next)];
+                if (other >= 0) {
+                    letterPairs[letterOf[cell]] |= 1 << other;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a letter is on the board.
+     *
+     * @param letter The letter, A-Z.
+     * @return True if some cell holds the letter.
+     */
+    public boolean hasLetter(char letter) {
+        return letterCells[letter - 'A'] != 0;
+    }
+
+    /**
+     * Checks if two letters are on adjacent cells somewhere on the board.
+     *
+     * @param first  The first letter, A-Z.
+     * @param second The second letter, A-Z.
+     * @return True if a cell of first touches a different cell of second.
+     */
+    public boolean hasPair(char first, char second) {
+        return (letterPairs[first - 'A'] & (1 << (second - 'A'))) != 0;
+    }
+
+    /**
+     * Looks for a path spelling a word. Case is folded and "QU" is played on a 'Q' cell. As in
+     * the solver, a word longer than the number of cells can't be played, even if "QU" cells
+     * would make its path fit. Whether the word is in a dictionary is not checked.
+     *
+     * @param word The word.
+     * @return The word in upper case with the path of the first way found to play it, null if
+     *         it can't be played on this board.
+     */
+    public Word find(CharSequence word) {
+        if (word.length() > cells) {
+            return null;
+        }
+        int n = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int letter = (word.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26 || n == cells) {
+                return null;
+            }
+            if (letter == 'q' - 'a') { // The 'U' after a 'Q' is on the same cube
+                if (i + 1 == word.length() || (word.charAt(i + 1) | 0x20) != 'u') {
+                    return null;
+                }
+                i++;
+            }
+            letters[n++] = (byte) letter;
+        }
+        if (n == 0) {
+            return null;
+        }
+
+        // Every letter must be on enough cells and every step must join letters that touch
+        for (int i = 0; i < n; i++) {
+            counts[letters[i]] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            if (++counts[letters[i]] > Long.bitCount(letterCells[letters[i]])) {
+                return null;
+            }
+            if (i > 0 && (letterPairs[letters[i - 1]] & (1 << letters[i])) == 0) {
+                return null;
+            }
+        }
+
+        if (!extend(letterCells[letters[0]], 0, 0, n)) {
+            return null;
+        }
+
+        StringBuilder name = new StringBuilder(n + 1);
+        for (int i = 0; i < n; i++) {
+            name.append((char) ('A' + letters[i]));
+            if (letters[i] == 'q' - 'a') {
+                name.append('U');
+            }
+        }
+        Word found = new Word(name.toString());
+        for (int i = 0; i < n; i++) {
+            found.addLetterRowAndCol(path[i] / cols, path[i] % cols);
+        }
+        return found;
+    }
+
+    // Method to try each cell of candidates as letter depth of the word, true once the path is complete
+    private boolean extend(long candidates, long visited, int depth, int n) {
+        for (long next = candidates & ~visited; next != 0; next &= next - 1) {
+            int cell = Long.numberOfTrailingZeros(next);
+            path[depth] = (byte) cell;
+            if (depth + 1 == n || extend(neighbours[cell] & letterCells[letters[depth + 1]], visited | (1L << cell), depth + 1, n)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Settings of a {@link BogglePlayer} and of the {@link BoggleSolver}s it runs, built with
+ * {@link #builder}. Every setting has a default, so only the ones that differ are given:
+ *
+ * <pre>
+ * BoggleOptions options = BoggleOptions.builder().size(5, 5).parallel(true).cacheSize(1000).build();
+ * BogglePlayer player = new BogglePlayer(dictionary, options);
+ * </pre>
+ *
+ * <p>Options are immutable and can be shared by any number of players and solvers. A solver
+ * uses the board size, engine, parallel search and word count; the cache and metrics settings
+ * are the player's.</p>
+ */
+public final class BoggleOptions {
+    /**
+     * The defaults: 4x4 boards, recursive engine, sequential search, 20 words, no cache, no metrics.
+     */
+    public static final BoggleOptions DEFAULT = builder().build();
+
+    public final int rows, cols;            // Board dimensions
+    public final boolean iterative;         // Whether the explicit stack engine is used instead of recursion
+    public final boolean parallel;          // Whether each board's search is split over the common ForkJoin pool
+    public final int maxWords;              // Number of best words getWords returns
+    public final int cacheSize;             // Number of boards whose solutions are cached, 0 for none
+    public final boolean metrics;           // Whether the player records its solvers' hot path
+
+    // Constructor copying a checked builder
+    private BoggleOptions(Builder builder) {
+        rows = builder.rows;
+        cols = builder.cols;
+        iterative = builder.iterative;
+        parallel = builder.parallel;
+        maxWords = builder.maxWords;
+        cacheSize = builder.cacheSize;
+        metrics = builder.metrics;
+    }
+
+    /**
+     * Starts from the defaults.
+     *
+     * @return A builder holding the default settings.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts from these options, to change some of them.
+     *
+     * @return A builder holding these settings.
+     */
+    public Builder toBuilder() {
+        return new Builder().size(rows, cols).iterative(iterative).parallel(parallel).maxWords(maxWords).cacheSize(cacheSize).metrics(metrics);
+    }
+
+    /**
+     * Describes the settings, for logging.
+     *
+     * @return The settings as name=value pairs.
+     */
+    @Override
+    public String toString() {
+        return "BoggleOptions[" + rows + "x" + cols + ", iterative=" + iterative + ", parallel=" + parallel + ", maxWords=" + maxWords
+               + ", cacheSize=" + cacheSize + ", metrics=" + metrics + "]";
+    }
+
+    /**
+     * Collects settings for {@link BoggleOptions}, checked when built.
+     */
+    public static final class Builder {
+        private int rows = 4, cols = 4;
+        private boolean iterative;
+        private boolean parallel;
+        private int maxWords = 20;
+        private int cacheSize;
+        private boolean metrics;
+
+        // Constructor for builder()
+        private Builder() {
+        }
+
+        /**
+         * Sets the board size, such as 5x5 for Big Boggle or 6x6 for Super Big Boggle.
+         *
+         * @param rows Number of board rows, at most 16.
+         * @param cols Number of board columns, at most 16, with at most 64 cells in all.
+         * @return This builder.
+         */
+        public Builder size(int rows, int cols) {
+            this.rows = rows;
+            this.cols = cols;
+            return this;
+        }
+
+        /**
+         * Chooses between the recursive and the explicit stack DFS engine. Both find the same
+         * words with the same paths.
+         *
+         * @param iterative True for the explicit stack engine.
+         * @return This builder.
+         */
+        public Builder iterative(boolean iterative) {
+            this.iterative = iterative;
+            return this;
+        }
+
+        /**
+         * Splits each board's search by start cell over the common ForkJoin pool, for lower
+         * latency on single large boards. The words returned are the same either way.
+         *
+         * @param parallel True to search in parallel.
+         * @return This builder.
+         */
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        /**
+         * Sets how many of the best words getWords returns.
+         *
+         * @param maxWords The number of words, at least 1.
+         * @return This builder.
+         */
+        public Builder maxWords(int maxWords) {
+            this.maxWords = maxWords;
+            return this;
+        }
+
+        /**
+         * Keeps the solutions of up to cacheSize boards, so a board seen before, or a rotation
+         * or reflection of it, is answered without a search. Only boards of up to 25 cells are
+         * cached.
+         *
+         * @param cacheSize The number of boards, 0 for no cache.
+         * @return This builder.
+         */
+        public Builder cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Records the dictionary load time and the solvers' hot path, see
+         * {@link BogglePlayer#getMetrics}. Without metrics the hooks in the DFS are empty and
+         * compiled away.
+         *
+         * @param metrics True to record.
+         * @return This builder.
+         */
+        public Builder metrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Checks the settings and freezes them.
+         *
+         * @return The options.
+         * @throws IllegalArgumentException If the board size is not supported, maxWords is below 1
+         *                                  or cacheSize is negative.
+         */
+        public BoggleOptions build() {
+            BoggleSolver.checkSize(rows, cols);
+            if (maxWords < 1) {
+                throw new IllegalArgumentException("maxWords must be at least 1, got " + maxWords);
+            }
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("cacheSize must not be negative, got " + cacheSize);
+            }
+            return new BoggleOptions(this);
+        }
+    }
+}
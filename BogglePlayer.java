@@ -1,215 +1,124 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.io.IOException;
+import java.util.stream.IntStream;
 
 public class BogglePlayer {
-    // Data structures to represent the Boggle game state
-    public static int[] dictionaryTree;     // Structure to store the dictionary tree
-    public static byte[][] board;           // 4x4 Boggle board
-    public static boolean[][] visited;      // Tracking visited positions during DFS
-    public static byte[] traceByte, stringByte;  // Arrays to store trace information
-    public static int[][] traceXY;          // 2D array to store x, y coordinates during DFS
-    public static ArrayList<Word> answers;  // List to store valid words found during DFS
-    public static Word[] words;             // Array to store the final list of words
-
-    // Constructor to initialize the BogglePlayer with a word file
+    // Data structures shared by every thread using this player
+    private volatile LiveDictionary dictionary;  // Current dictionary version, replaced as a whole by reload
+    private final BoggleSolver.Pool solvers;  // DFS scratch state, one solver per call running
+    private final SolutionCache cache;      // Boards solved so far up to rotation and reflection, null if not caching
+    private final SolverMetrics metrics;    // Root of the solvers' hot path metrics, NONE if not recording
+
+    // Constructor to initialize the BogglePlayer with a word file or a binary dictionary image,
+    // throws UncheckedIOException if it can't be read
     public BogglePlayer(String wordFile) {
-        Scanner scan;
-        try {
-            scan = new Scanner(new File(wordFile));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return;
-        }
+        this(wordFile, BoggleOptions.DEFAULT);
+    }
 
-        // Build dictionary tree
-        ArrayList<Boolean> isAWord = new ArrayList<Boolean>();
-        ArrayList<Byte> alphabet = new ArrayList<Byte>();
-        ArrayList<ArrayList<Integer>> child = new ArrayList<ArrayList<Integer>>();
+    // Constructor to share an already built dictionary between players
+    public BogglePlayer(PackedTrie dictionary) {
+        this(dictionary, BoggleOptions.DEFAULT);
+    }
 
-        // Initialize the root node of the tree
-        isAWord.add(false); // The root is not a word
-        ArrayList<Integer> intArray = new ArrayList<Integer>(26);
-        for (int i = 0; i < 26; i++) {
-            intArray.add(0);
-        }
-        child.add(intArray);
-        alphabet.add((byte) -1);
-
-        // Add all valid words to the tree
-        while (scan.hasNext()) {
-            String str = scan.next().toUpperCase();
-            if (isValidWord(str)) {
-                int p = 0;
-                for (int i = 0; i < str.length(); i++) {
-                    if (child.get(p).get(str.charAt(i) - 'A') == 0) {
-                        newDictionaryNode(p, str.charAt(i), child, isAWord, alphabet);
-                    }
-                    p = child.get(p).get(str.charAt(i) - 'A');
-
-                    if (str.charAt(i) == 'Q') {
-                        i++;
-                    }
-                }
-                isAWord.set(p, true);
-            }
-        }
-        scan.close();
-
-        // Calculate position map for dictionary tree
-        int[] posMap = new int[isAWord.size()];
-        posMap[0] = 0;
-        for (int i = 1; i < posMap.length; i++) {
-            int childCount = 0;
-            for (int j = 0; j < child.get(i - 1).size(); j++) {
-                if (child.get(i - 1).get(j) != 0) {
-                    childCount++;
-                }
-            }
-            posMap[i] = 1 + posMap[i - 1] + childCount;
-        }
+    // Constructor to load the dictionary and play with the given options. With metrics, the load
+    // time is recorded too
+    public BogglePlayer(String wordFile, BoggleOptions options) {
+        this(wordFile, options, options.metrics ? SolverMetrics.recording() : SolverMetrics.NONE);
+    }
 
-        // Fill in the data for the dictionary tree
-        dictionaryTree = new int[posMap[isAWord.size() - 1] + 26];
-        for (int i = 0; i < isAWord.size(); i++) {
-            int childCount = (i == isAWord.size() - 1 ? posMap[i] + 1 : posMap[i + 1]) - posMap[i] - 1;
-
-            dictionaryTree[posMap[i]] = childCount;
-
-            if (childCount != 0) {
-                childCount = 0; // Reused
-                for (int j = 0; j < child.get(i).size(); j++) {
-                    if (child.get(i).get(j) != 0) {
-                        dictionaryTree[posMap[i] + (++childCount)] = dCompose(isAWord.get(child.get(i).get(j)), (byte) j, posMap[child.get(i).get(j)]);
-                    }
-                }
-            }
-        }
+    // Constructor to share an already built dictionary and play with the given options: board
+    // size, DFS engine, parallel search, solution cache and metrics
+    public BogglePlayer(PackedTrie dictionary, BoggleOptions options) {
+        this(dictionary, options, options.metrics ? SolverMetrics.recording() : SolverMetrics.NONE);
+    }
 
-        // Initialize Boggle board and other arrays
-        board = new byte[4][4];
-        visited = new boolean[4][4];
-        traceByte = new byte[20];
-        stringByte = new byte[20];
-        traceXY = new int[20][2];
-        answers = new ArrayList<Word>();
-        words = new Word[20];
+    // Constructor to load the dictionary with its load time recorded in metrics
+    private BogglePlayer(String wordFile, BoggleOptions options, SolverMetrics metrics) {
+        this(open(wordFile, metrics), options, metrics);
     }
 
-    // Method to create a new dictionary node
-    public void newDictionaryNode(int p, char c, ArrayList<ArrayList<Integer>> child, ArrayList<Boolean> isAWord, ArrayList<Byte> alphabet) {
-        child.get(p).set(c - 'A', child.size()); // Point to new node
+    // Constructor giving each solver a child of metrics. A parallel player's solvers share one pool
+    // of helpers, so there are only as many helpers as tasks running at once
+    private BogglePlayer(PackedTrie dictionary, BoggleOptions options, SolverMetrics metrics) {
+        this.dictionary = new LiveDictionary(dictionary);
+        this.metrics = metrics;
+        BoggleSolver.Pool helpers = options.parallel ? new BoggleSolver.Pool(options.toBuilder().parallel(false).build(), metrics, null) : null;
+        solvers = new BoggleSolver.Pool(options, metrics, helpers);
+        cache = options.cacheSize > 0 ? new SolutionCache(options.rows, options.cols, options.cacheSize) : null;
+    }
 
-        ArrayList<Integer> intArray = new ArrayList<Integer>(26);
-        for (int i = 0; i < 26; i++) {
-            intArray.add(0);
-        }
-        child.add(intArray); // New node
+    // Method to load a dictionary, recording the time taken in metrics
+    private static PackedTrie open(String wordFile, SolverMetrics metrics) {
+        long start = System.nanoTime();
+        PackedTrie dictionary = PackedTrie.open(wordFile);
+        metrics.build(System.nanoTime() - start);
+        return dictionary;
+    }
 
-        isAWord.add(false);
-        alphabet.add((byte) c);
+    // Method to get the dictionary version new getWords calls search
+    public LiveDictionary getDictionary() {
+        return dictionary;
     }
 
-    // Method to check if a word is valid (length between 3 and 16, handling 'Q' followed by 'U')
-    public boolean isValidWord(String str) {
-        if (str.length() < 3 || 16 < str.length()) { // The length must be between 3 and 16
-            return false;
-        } else {
-            for (int i = 0; i < str.length() - 1; i++) { // Check for single 'Q'
-                if (str.charAt(i) == 'Q' && str.charAt(i + 1) != 'U') { // Invalid if 'Q' is not followed by 'U'
-                    return false;
-                }
-            }
-            return str.charAt(str.length() - 1) != 'Q'; // Check if the last character is 'Q'
-        }
+    // Method to apply a delta file of +word / -word lines to the dictionary. The new version is
+    // built aside and swapped in whole: calls already running finish on the version they started
+    // with, and if the file can't be read or parsed the current version stays
+    public synchronized LiveDictionary reload(String deltaFile) throws IOException {
+        dictionary = dictionary.apply(deltaFile);
+        return dictionary;
     }
 
-    // Method to compose dictionary node data
-    public int dCompose(boolean isAWord, byte alphabet, int child) {
-        return ((isAWord ? 1 : 0) << 31) | (((int) alphabet) << 23) | (child);
+    // Method to get the solution cache with its hit, miss and eviction counters, null if not caching
+    public SolutionCache getCache() {
+        return cache;
     }
 
-    // Method to get the alphabet byte from dictionary node data
-    public byte dGetByte(int data) {
-        return (byte) (data >> 23);
+    // Method to sum the metrics of every solver and helper: DFS calls, child probes, fan-out, pruned
+    // branches, dedup hits, words, and time per phase. All zero if the player was built without
+    // metrics; boards answered from the cache are not counted. The phase times are summed over
+    // threads, so they overlap and can exceed the wall-clock time when boards run concurrently
+    public SolverMetrics.Snapshot getMetrics() {
+        return metrics.snapshot();
     }
 
-    // Method to find valid words on the Boggle board
-    public Word[] getWords(char[][] board) {
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                BogglePlayer.board[i][j] = (byte) board[i][j];
-            }
+    // Method to check one word: returns it with a path if it is in the dictionary and can be played
+    // on the board, null otherwise. To check many words on the same board, keep a BoardIndex
+    public Word findWord(char[][] board, String word) {
+        if (!dictionary.contains(word)) {
+            return null;
         }
+        return new BoardIndex(board).find(word);
+    }
 
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                traceXY[0][0] = i;
-                traceXY[0][1] = j;
-                dfs(0, i, j, 0);
-            }
+    // Method to find valid words on the Boggle board, safe to call from several threads
+    public Word[] getWords(char[][] board) {
+        LiveDictionary dictionary = this.dictionary;
+        SolutionCache.Key key = cache != null ? cache.key(board) : null;
+        if (key == null) {
+            return solve(dictionary, board);
         }
 
-        for (int i = 0; i < words.length && i < answers.size(); i++) {
-            words[i] = answers.get(i);
+        Word[] words = cache.get(key, dictionary);
+        if (words == null) {
+            words = solve(dictionary, board);
+            cache.put(key, dictionary, words);
         }
-
         return words;
     }
 
-    // Depth-first search to find valid words on the Boggle board
-    public void dfs(int p, int x, int y, int depth) {
-        int[][] NEXT_STEP = {
-                {-1, -1}, {-1, 0}, {-1, 1},
-                {0, -1}, {0, 1},
-                {1, -1}, {1, 0}, {1, 1}
-        };
-
-        visited[x][y] = true;
-        for (int[] ints : NEXT_STEP) {
-            int newX = x + ints[0], newY = y + ints[1];
-            int index = findIndex(p, newX, newY);
-
-            if (index != 0) {
-                traceByte[depth] = (byte) (dGetByte(dictionaryTree[p + index]) + 'A');
-                traceXY[depth + 1][0] = newX;
-                traceXY[depth + 1][1] = newY;
-
-                dfs((dictionaryTree[p + index] & 0x7fffff), newX, newY, depth + 1);
-
-                if (dictionaryTree[p + index] < 0) {
-                    dictionaryTree[p + index] &= 0x7fffffff;
-
-                    int j, k;
-                    for (j = 0, k = 0; j <= depth; j++) {
-                        stringByte[k++] = traceByte[j];
-                        if (traceByte[j] == (byte) 'Q') {
-                            stringByte[k++] = (byte) 'U';
-                        }
-                    }
-
-                    Word aWord = new Word();
-                    aWord.setWord(new String(stringByte, 0, k));
-                    for (j = 1; j <= depth + 1; j++) {
-                        aWord.addLetterRowAndCol(traceXY[j][0], traceXY[j][1]);
-                    }
-                    answers.add(aWord);
-                }
-            }
+    // Method to search a board on an idle solver
+    private Word[] solve(LiveDictionary dictionary, char[][] board) {
+        BoggleSolver solver = solvers.take(dictionary);
+        try {
+            return solver.getWords(dictionary, board);
+        } finally {
+            solvers.give(solver);
         }
-        visited[x][y] = false;
     }
 
-    // Method to find the index of a valid word on the Boggle board
-    public int findIndex(int p, int x, int y) {
-        if (dictionaryTree[p] != 0 && 0 <= x && x < 4 && 0 <= y && y < 4 && !visited[x][y]) {
-            for (int i = 1; i <= dictionaryTree[p]; i++) {
-                if (board[x][y] == dGetByte(dictionaryTree[p + i]) + 'A') {
-                    return i;
-                }
-            }
-        }
-        return 0;
+    // Method to find valid words on many boards in parallel, results are in board order
+    public Word[][] solveAll(char[][][] boards) {
+        Word[][] results = new Word[boards.length][];
+        IntStream.range(0, boards.length).parallel().forEach(i -> results[i] = getWords(boards[i]));
+        return results;
     }
 }
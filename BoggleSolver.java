@@ -0,0 +1,535 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Search context over a shared {@link PackedTrie}.
+ *
+ * <p>A solver owns all the scratch state of the DFS, so one instance must not be used by
+ * two threads at once. Any number of solvers can share the same dictionary.</p>
+ *
+ * <p>The board has rows x cols cells, at most 64, numbered row * cols + col. The DFS keeps
+ * the visited cells as a long bit mask and walks the set bits of neighbours[cell] that are
+ * not visited yet. It runs either recursively or as one flat loop over an explicit stack of
+ * frames; both engines visit the cells in the same order and find the same words.</p>
+ *
+ * <p>The dictionary is a {@link LiveDictionary}: the base tree is searched first, then the
+ * overlay of added words if there is one, and removed base words are skipped when found.
+ * Each getWords call binds one version for its whole search.</p>
+ *
+ * <p>Before descending into a node, its required letters (see {@link PackedTrie#ranks}) are
+ * checked against the letters on the board, so a branch whose every word needs a letter the
+ * board doesn't have is skipped without being walked.</p>
+ *
+ * <p>A parallel solver splits each search by start cell into ForkJoin tasks. Each task runs on a
+ * sequential helper solver taken from a pool, with its own scratch state and best words, and
+ * logs the words its queue accepted in the order found. The logs are then replayed in start
+ * cell order through this solver's dedup and queue, which is the order a sequential search
+ * finds them in, so the words and paths returned are the same. A task keeps fewer best words
+ * than the whole search, so it prunes less; every word the sequential search would keep is in
+ * a log.</p>
+ *
+ * <p>The DFS reports each node entered, branch pruned and word found to a {@link SolverMetrics}.
+ * A solver built without metrics gets {@link SolverMetrics#NONE}, whose hooks are empty.</p>
+ */
+public class BoggleSolver {
+    private final int rows, cols;           // Board dimensions
+    private final int cells;                // Number of cells, rows * cols
+    private final int maxLength;            // Longest word that can be played, one letter per cell
+    private final long[] neighbours;        // Bit mask of the cells adjacent to each cell
+    private LiveDictionary dictionary;      // Dictionary version searched by the current call
+    private int baseWords;                  // Number of base words, overlay ordinals start here
+    private int[] dictionaryTree;           // Shared tree being searched, base or overlay, never written
+    private int[] ranks;                    // Shared entry ranks of that tree, used to number the words found
+    private final int[] board;              // Letter bit of each cell (1 << letter, 0 if not A-Z)
+    private int boardLetters;               // Letter bits of all the cells, branches needing others are skipped
+    private final byte[] traceCell;         // Cells of the current path
+    private final boolean iterative;        // Whether the explicit stack engine is used
+    private final Pool helpers;             // Idle solvers to run tasks on, null if not parallel
+    private Part part;                      // Task a helper is running, its accepted words are logged there
+    private final int[] frameNode;          // Trie node of each stack frame
+    private final int[] frameOrdinal;       // First word ordinal below the node of each frame
+    private final long[] frameCells;        // Cells still to try from each frame
+    private final long[] frameVisited;      // Cells on the path of each frame
+    private final int[] frameLength;        // Word length so far of each frame
+    private final PackedWordQueue answers;  // Highest scoring words found so far during DFS, as ordinal and path
+    private int[] foundStamp;               // Epoch in which each word ordinal was last found
+    private int epoch;                      // Current getWords call, used to dedup without touching the tree
+    private final SolverMetrics metrics;    // Hot path counters of this solver, NONE if not recorded
+
+    /**
+     * Constructs a recursive 4x4 solver context returning the 20 best words.
+     *
+     * @param dictionary The shared dictionary.
+     */
+    public BoggleSolver(PackedTrie dictionary) {
+        this(new LiveDictionary(dictionary), BoggleOptions.DEFAULT);
+    }
+
+    /**
+     * Constructs a solver context for a dictionary that can be patched while it is in use.
+     *
+     * @param dictionary The dictionary version to search until another one is passed to getWords.
+     * @param options    The board size, DFS engine, parallel search and number of words returned.
+     */
+    public BoggleSolver(LiveDictionary dictionary, BoggleOptions options) {
+        this(dictionary, options, SolverMetrics.NONE);
+    }
+
+    /**
+     * Constructs a solver context that records its hot path in the given metrics. Helpers of a
+     * parallel solver record in children of them.
+     *
+     * @param dictionary The dictionary version to search until another one is passed to getWords.
+     * @param options    The board size, DFS engine, parallel search and number of words returned.
+     * @param metrics    Metrics owned by this solver, {@link SolverMetrics#NONE} to record nothing.
+     */
+    public BoggleSolver(LiveDictionary dictionary, BoggleOptions options, SolverMetrics metrics) {
+        this(dictionary, options, metrics, options.parallel ? new Pool(options.toBuilder().parallel(false).build(), metrics, null) : null);
+    }
+
+    // Constructor for a solver whose tasks run on helpers shared with other solvers, as a player's
+    // are. helpers holds sequential solvers of the same board size, null if not parallel
+    BoggleSolver(LiveDictionary dictionary, BoggleOptions options, SolverMetrics metrics, Pool helpers) {
+        rows = options.rows;
+        cols = options.cols;
+        cells = rows * cols;
+        maxLength = cells;
+        neighbours = neighbours(rows, cols);
+
+        iterative = options.iterative;
+        this.helpers = helpers;
+        frameNode = new int[cells + 1];
+        frameOrdinal = new int[cells + 1];
+        frameCells = new long[cells + 1];
+        frameVisited = new long[cells + 1];
+        frameLength = new int[cells + 1];
+        board = new int[cells];
+        traceCell = new byte[cells];
+        answers = new PackedWordQueue(options.maxWords, cells);
+        foundStamp = new int[0];
+        epoch = 0;
+        this.metrics = metrics;
+        bind(dictionary);
+    }
+
+    /**
+     * Checks that a board size is supported: at most 16 rows and columns and at most 64 cells.
+     *
+     * @param rows Number of board rows.
+     * @param cols Number of board columns.
+     * @throws IllegalArgumentException If the size is not supported.
+     */
+    public static void checkSize(int rows, int cols) {
+        if (rows < 1 || cols < 1 || rows > 16 || cols > 16 || rows * cols > 64) {
+            throw new IllegalArgumentException("Unsupported board size " + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * Computes the cells adjacent to each cell of a board, cells numbered row * cols + col.
+     *
+     * @param rows Number of board rows.
+     * @param cols Number of board columns.
+     * @return The bit mask of the neighbours of each cell.
+     */
+    public static long[] neighbours(int rows, int cols) {
+        long[] neighbours = new long[rows * cols];
+        for (int cell = 0; cell < neighbours.length; cell++) {
+            int x = cell / cols, y = cell % cols;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int newX = x + dx, newY = y + dy;
+                    if ((dx != 0 || dy != 0) && 0 <= newX && newX < rows && 0 <= newY && newY < cols) {
+                        neighbours[cell] |= 1L << (newX * cols + newY);
+                    }
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    // Method to find valid words on the Boggle board in the last dictionary version searched
+    public Word[] getWords(char[][] board) {
+        return getWords(dictionary, board);
+    }
+
+    // Method to find valid words on the Boggle board in the given dictionary version
+    public Word[] getWords(LiveDictionary dictionary, char[][] board) {
+        long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        if (helpers != null) {
+            return searchParallel(dictionary, board, start);
+        }
+        if (dictionary != this.dictionary) {
+            bind(dictionary);
+        }
+        boardLetters = encode(board, this.board);
+        newEpoch();
+
+        // Every cell can start a word
+        long allCells = cells == 64 ? -1L : (1L << cells) - 1;
+        long searchStart = metrics.isEnabled() ? System.nanoTime() : 0;
+        dictionaryTree = dictionary.base.tree;
+        ranks = dictionary.base.ranks;
+        if (iterative) {
+            search(allCells, 0);
+        } else {
+            dfs(0, 0, allCells, 0, 0, 0);
+        }
+
+        // Then the words added since the base was built, numbered after the base words
+        if (dictionary.overlay.wordCount != 0) {
+            dictionaryTree = dictionary.overlay.tree;
+            ranks = dictionary.overlay.ranks;
+            if (iterative) {
+                search(allCells, baseWords);
+            } else {
+                dfs(0, baseWords, allCells, 0, 0, 0);
+            }
+        }
+
+        return drain(start, searchStart);
+    }
+
+    // Method to drain the queue lowest score first, so the returned words are best first. Only
+    // these words get a Word and Locations, and their Strings come from the dictionary's cache.
+    // start and searchStart are when the call and its search began, if metrics are recorded
+    private Word[] drain(long start, long searchStart) {
+        long drainStart = metrics.isEnabled() ? System.nanoTime() : 0;
+        Word[] words = new Word[answers.getLength()];
+        for (int i = words.length - 1; i >= 0; i--) {
+            words[i] = materialize(answers.extractMin());
+        }
+
+        if (metrics.isEnabled()) {
+            metrics.getWords(searchStart - start, drainStart - searchStart, System.nanoTime() - drainStart, words.length);
+        }
+        return words;
+    }
+
+    // Method to check the board's size and store the letter bit of each cell (1 << letter, 0 if
+    // not A-Z) in letters, returns the letter bits of all the cells
+    private int encode(char[][] board, int[] letters) {
+        if (board.length != rows) {
+            throw new IllegalArgumentException("Expected " + rows + " rows, got " + board.length);
+        }
+        int all = 0;
+        for (int i = 0; i < rows; i++) {
+            if (board[i].length != cols) {
+                throw new IllegalArgumentException("Expected " + cols + " columns, got " + board[i].length);
+            }
+            for (int j = 0; j < cols; j++) {
+                char c = board[i][j];
+                letters[i * cols + j] = 'A' <= c && c <= 'Z' ? 1 << (c - 'A') : 0;
+                all |= letters[i * cols + j];
+            }
+        }
+        return all;
+    }
+
+    // Method to start a new epoch so words found on earlier boards count as unfound again
+    private void newEpoch() {
+        if (++epoch == 0) {
+            Arrays.fill(foundStamp, 0);
+            epoch = 1;
+        }
+        answers.clear();
+    }
+
+    // Method to run one task per start cell of each tree, then replay their logs in order. While
+    // this thread waits for the tasks it can run other tasks of the pool, including another
+    // getWords on this solver if the caller's own tasks share it. So the tasks get their own
+    // copy of the board, and this solver's state is only set up once they are done
+    private Word[] searchParallel(LiveDictionary dictionary, char[][] board, long start) {
+        int[] letters = new int[cells];
+        int boardLetters = encode(board, letters);
+        long allCells = cells == 64 ? -1L : (1L << cells) - 1;
+        long searchStart = metrics.isEnabled() ? System.nanoTime() : 0;
+
+        List<Part> parts = new ArrayList<Part>();
+        for (long next = allCells; next != 0; next &= next - 1) {
+            parts.add(new Part(this, dictionary, letters, boardLetters, dictionary.base, 0, Long.numberOfTrailingZeros(next)));
+        }
+        if (dictionary.overlay.wordCount != 0) {
+            for (long next = allCells; next != 0; next &= next - 1) {
+                parts.add(new Part(this, dictionary, letters, boardLetters, dictionary.overlay, dictionary.base.wordCount, Long.numberOfTrailingZeros(next)));
+            }
+        }
+        ForkJoinTask.invokeAll(parts);
+
+        if (dictionary != this.dictionary) {
+            bind(dictionary);
+        }
+        newEpoch();
+
+        for (Part part : parts) {
+            for (int i = 0; i < part.count; i++) {
+                int ordinal = part.ordinals[i];
+                if (foundStamp[ordinal] == epoch) {
+                    metrics.dedupHit();
+                    continue;
+                }
+                foundStamp[ordinal] = epoch;
+                metrics.wordFound();
+                System.arraycopy(part.cells, i * cells, traceCell, 0, part.lengths[i]);
+                answers.insert(ordinal, part.scores[i], traceCell, part.lengths[i]);
+            }
+        }
+        return drain(start, searchStart);
+    }
+
+    // Method run by a helper to search the words starting at the start cell of a task
+    private void searchPart(Part part) {
+        if (part.dictionary != dictionary) {
+            bind(part.dictionary);
+        }
+        System.arraycopy(part.board, 0, board, 0, cells);
+        boardLetters = part.boardLetters;
+        newEpoch();
+
+        this.part = part;
+        dictionaryTree = part.trie.tree;
+        ranks = part.trie.ranks;
+        if (iterative) {
+            search(1L << part.start, part.ordinal);
+        } else {
+            dfs(0, part.ordinal, 1L << part.start, 0, 0, 0);
+        }
+        this.part = null;
+    }
+
+    // Depth-first search to find valid words on the Boggle board. Node p is reached by the first
+    // depth cells of the trace, ordinal is the first word ordinal below p, length is the word
+    // length so far, and the next letter is looked for in the cells of candidates not in visited
+    private void dfs(int p, int ordinal, long candidates, long visited, int depth, int length) {
+        int header = dictionaryTree[p];
+        metrics.dfsCall(header, candidates & ~visited);
+        for (long next = candidates & ~visited; next != 0; next &= next - 1) {
+            int cell = Long.numberOfTrailingZeros(next);
+            int index = PackedTrie.hFindChild(header, board[cell]);
+            if (index == 0) {
+                continue;
+            }
+
+            int entry = dictionaryTree[p + index];
+            int entryOrdinal = ordinal + ranks[p + index];
+            int child = PackedTrie.dGetChild(entry);
+            byte letter = (byte) (PackedTrie.dGetByte(entry) + 'A');
+            int newLength = length + (letter == (byte) 'Q' ? 2 : 1);
+
+            // Skip the branch if even its longest word can't beat the worst word kept
+            if (answers.isFull() && score(Math.min(newLength + PackedTrie.hGetDepth(dictionaryTree[child]), maxLength)) <= answers.peekMinPriority()) {
+                metrics.pruned();
+                continue;
+            }
+
+            traceCell[depth] = (byte) cell;
+
+            if (entry < 0) {
+                found(entryOrdinal, depth, newLength);
+            }
+
+            if (PackedTrie.hGetCount(dictionaryTree[child]) != 0) {
+                if ((ranks[child] & ~boardLetters) != 0) {
+                    metrics.pruned();
+                    continue;
+                }
+                dfs(child, entry < 0 ? entryOrdinal + 1 : entryOrdinal, neighbours[cell], visited | (1L << cell), depth + 1, newLength);
+            }
+        }
+    }
+
+    // Same search as dfs, run as one loop over an explicit stack of frames
+    private void search(long allCells, int ordinal) {
+        int depth = 0;
+        frameNode[0] = 0;
+        frameOrdinal[0] = ordinal;
+        frameCells[0] = allCells;
+        frameVisited[0] = 0;
+        frameLength[0] = 0;
+        metrics.dfsCall(dictionaryTree[0], allCells);
+
+        while (depth >= 0) {
+            long next = frameCells[depth];
+            if (next == 0) {
+                depth--;
+                continue;
+            }
+            frameCells[depth] = next & (next - 1);
+
+            int cell = Long.numberOfTrailingZeros(next);
+            int p = frameNode[depth];
+            int index = PackedTrie.hFindChild(dictionaryTree[p], board[cell]);
+            if (index == 0) {
+                continue;
+            }
+
+            int entry = dictionaryTree[p + index];
+            int entryOrdinal = frameOrdinal[depth] + ranks[p + index];
+            int child = PackedTrie.dGetChild(entry);
+            byte letter = (byte) (PackedTrie.dGetByte(entry) + 'A');
+            int newLength = frameLength[depth] + (letter == (byte) 'Q' ? 2 : 1);
+
+            // Skip the branch if even its longest word can't beat the worst word kept
+            if (answers.isFull() && score(Math.min(newLength + PackedTrie.hGetDepth(dictionaryTree[child]), maxLength)) <= answers.peekMinPriority()) {
+                metrics.pruned();
+                continue;
+            }
+
+            traceCell[depth] = (byte) cell;
+
+            if (entry < 0) {
+                found(entryOrdinal, depth, newLength);
+            }
+
+            if (PackedTrie.hGetCount(dictionaryTree[child]) != 0) {
+                if ((ranks[child] & ~boardLetters) != 0) {
+                    metrics.pruned();
+                    continue;
+                }
+                long visited = frameVisited[depth] | (1L << cell);
+                depth++;
+                frameNode[depth] = child;
+                frameOrdinal[depth] = entry < 0 ? entryOrdinal + 1 : entryOrdinal;
+                frameCells[depth] = neighbours[cell] & ~visited;
+                frameVisited[depth] = visited;
+                frameLength[depth] = newLength;
+                metrics.dfsCall(dictionaryTree[child], frameCells[depth]);
+            }
+        }
+    }
+
+    // Method to record the word spelled by the first depth + 1 cells of the trace
+    private void found(int ordinal, int depth, int length) {
+        if (foundStamp[ordinal] == epoch) {
+            metrics.dedupHit();
+            return;
+        }
+        if (length > maxLength) {
+            return;
+        }
+        foundStamp[ordinal] = epoch;
+        if (ordinal < baseWords && dictionary.isRemoved(ordinal)) {
+            return;
+        }
+        if (part == null) {
+            metrics.wordFound();  // A task's words are counted once, by the replay
+        }
+
+        int score = score(length);
+        if (part != null && (!answers.isFull() || score > answers.peekMinPriority())) {
+            part.log(ordinal, score, traceCell, depth + 1);
+        }
+        answers.insert(ordinal, score, traceCell, depth + 1);
+    }
+
+    // Method to build the Word kept in a queue slot, its String is shared through the dictionary
+    private Word materialize(int slot) {
+        Word word = new Word(dictionary.word(answers.getOrdinal(slot)));
+        for (int j = 0; j < answers.getPathLength(slot); j++) {
+            int cell = answers.getCell(slot, j);
+            word.addLetterRowAndCol(cell / cols, cell % cols);
+        }
+        return word;
+    }
+
+    // Method to switch to another dictionary version, ordinals of base words keep their meaning
+    private void bind(LiveDictionary dictionary) {
+        this.dictionary = dictionary;
+        baseWords = dictionary.base.wordCount;
+        if (foundStamp.length < dictionary.wordCount()) {
+            foundStamp = Arrays.copyOf(foundStamp, dictionary.wordCount());
+        }
+    }
+
+    // One task of a parallel search: the words of one tree that start at one cell
+    private static final class Part extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BoggleSolver parent;  // Solver that replays the log
+        private final LiveDictionary dictionary;  // Dictionary version searched
+        private final int[] board;          // Letter bit of each cell, shared by the tasks of one board
+        private final int boardLetters;     // Letter bits of all the cells
+        private final PackedTrie trie;      // Tree to search, base or overlay
+        private final int ordinal;          // Ordinal of the first word of trie
+        private final int start;            // Start cell
+        private int count;                  // Number of words logged
+        private int[] ordinals, scores, lengths;  // Ordinal, score and path length of each word logged
+        private byte[] cells;               // Path of each word logged, parent.cells bytes per word
+
+        private Part(BoggleSolver parent, LiveDictionary dictionary, int[] board, int boardLetters, PackedTrie trie, int ordinal, int start) {
+            this.parent = parent;
+            this.dictionary = dictionary;
+            this.board = board;
+            this.boardLetters = boardLetters;
+            this.trie = trie;
+            this.ordinal = ordinal;
+            this.start = start;
+            ordinals = new int[16];
+            scores = new int[16];
+            lengths = new int[16];
+            cells = new byte[16 * parent.cells];
+        }
+
+        @Override
+        protected void compute() {
+            BoggleSolver helper = parent.helpers.take(dictionary);
+            try {
+                helper.searchPart(this);
+            } finally {
+                parent.helpers.give(helper);
+            }
+        }
+
+        // Method to append a word accepted by the helper's queue
+        private void log(int ordinal, int score, byte[] path, int length) {
+            if (count == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, 2 * count);
+                scores = Arrays.copyOf(scores, 2 * count);
+                lengths = Arrays.copyOf(lengths, 2 * count);
+                cells = Arrays.copyOf(cells, 2 * cells.length);
+            }
+            ordinals[count] = ordinal;
+            scores[count] = score;
+            lengths[count] = length;
+            System.arraycopy(path, 0, cells, count * parent.cells, length);
+            count++;
+        }
+    }
+
+    // Idle solvers of the same options, each handed to one call or task at a time and given back
+    // after. A pool only grows to the most calls it serves at once. A ThreadLocal would not bound
+    // it: the workers of the common ForkJoin pool clear their ThreadLocals after each top-level
+    // task, so every solveAll chunk or parallel board would build new solvers
+    static final class Pool {
+        private final BoggleOptions options;  // Options of the solvers made
+        private final SolverMetrics metrics;  // Parent of each new solver's metrics
+        private final Pool helpers;         // Helpers of the solvers made, null if not parallel
+        private final ConcurrentLinkedQueue<BoggleSolver> idle = new ConcurrentLinkedQueue<BoggleSolver>();
+
+        Pool(BoggleOptions options, SolverMetrics metrics, Pool helpers) {
+            this.options = options;
+            this.metrics = metrics;
+            this.helpers = helpers;
+        }
+
+        // Method to take an idle solver, or make one bound to dictionary if there is none
+        BoggleSolver take(LiveDictionary dictionary) {
+            BoggleSolver solver = idle.poll();
+            return solver != null ? solver : new BoggleSolver(dictionary, options, metrics.child(), helpers);
+        }
+
+        // Method to give a solver back once its call is done
+        void give(BoggleSolver solver) {
+            idle.add(solver);
+        }
+    }
+
+    // Method to get the points of a word with the given length, words under 3 letters are worth nothing
+    private static int score(int length) {
+        return length < 3 ? 0 : (length - 2) * (length - 2);
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * Represents a Trie data structure for storing and validating words.
  */
@@ -14,22 +16,140 @@ public class DictionaryTrie {
      * @return True if the word is inserted successfully, false otherwise.
      */
     public boolean insertWord(final String wordRaw) {
-        final String word = wordRaw.toLowerCase();
+        return insert(wordRaw, null, wordRaw.length());
+    }
 
-        if (!(word.matches("^[a-z]*$") && !word.matches(".*q[^u].*"))) {
-            return false;
+    /**
+     * Inserts a word into the Trie without requiring a String.
+     *
+     * @param word The word to insert.
+     * @return True if the word is inserted successfully, false otherwise.
+     */
+    public boolean insertWord(final CharSequence word) {
+        return insert(word, null, word.length());
+    }
+
+    /**
+     * Inserts a word given as ASCII bytes into the Trie.
+     *
+     * @param word The word to insert.
+     * @return True if the word is inserted successfully, false otherwise.
+     */
+    public boolean insertWord(final byte[] word) {
+        return insert(null, word, word.length);
+    }
+
+    /**
+     * Checks if a word is valid in the Trie.
+     *
+     * @param wordRaw The word to check for validity.
+     * @return True if the word is valid, false otherwise.
+     */
+    public boolean isValid(final String wordRaw) {
+        return isValid(wordRaw, null, wordRaw.length());
+    }
+
+    /**
+     * Checks if a word is valid in the Trie without requiring a String.
+     *
+     * @param word The word to check for validity.
+     * @return True if the word is valid, false otherwise.
+     */
+    public boolean isValid(final CharSequence word) {
+        return isValid(word, null, word.length());
+    }
+
+    /**
+     * Checks if a word given as ASCII bytes is valid in the Trie.
+     *
+     * @param word The word to check for validity.
+     * @return True if the word is valid, false otherwise.
+     */
+    public boolean isValid(final byte[] word) {
+        return isValid(null, word, word.length);
+    }
+
+    /**
+     * Walks a word and the Trie together in one pass. Letters are case folded as they are read,
+     * a U straight after a Q is skipped, and the walk stops at the first character that is not a
+     * letter, a Q that is not followed by a U, or a letter missing from the Trie. A word ending
+     * in Q is rejected like in {@link PackedTrieBuilder#add}, since the Q cube reads "QU".
+     *
+     * @param chars  The word, or null if it is given as bytes.
+     * @param bytes  The word as ASCII bytes, or null if it is given as chars.
+     * @param length The length of the word.
+     * @return True if the word is in the Trie, false otherwise.
+     */
+    private boolean isValid(final CharSequence chars, final byte[] bytes, final int length) {
+        DNode finger = root;
+        boolean afterQ = false;
+
+        for (int i = 0; i < length; i++) {
+            int letter = letter(bytes != null ? bytes[i] & 0xff : chars.charAt(i));
+            if (letter < 0) {
+                return false;
+            }
+
+            if (afterQ) {
+                if (letter != 'u' - 'a') {
+                    return false;
+                }
+                afterQ = false;
+                continue;
+            }
+
+            finger = finger.children.hasChild((char) ('a' + letter));
+            if (finger == null) {
+                return false;
+            }
+            afterQ = letter == 'q' - 'a';
         }
+        return !afterQ && finger.isLeaf();
+    }
 
-        char[] wordArr = word.toCharArray();
+    /**
+     * Walks a word and the Trie together, following existing nodes for as long as they last.
+     * The rest of the word is checked before any node is created, so a rejected word leaves the
+     * Trie unchanged.
+     *
+     * @param chars  The word, or null if it is given as bytes.
+     * @param bytes  The word as ASCII bytes, or null if it is given as chars.
+     * @param length The length of the word.
+     * @return True if the word is inserted successfully, false otherwise.
+     */
+    private boolean insert(final CharSequence chars, final byte[] bytes, final int length) {
         DNode finger = root;
+        boolean afterQ = false;
+        boolean checked = false;
 
-        for (int i = 0; i < wordArr.length; i++) {
+        for (int i = 0; i < length; i++) {
+            int letter = letter(bytes != null ? bytes[i] & 0xff : chars.charAt(i));
+            if (letter < 0) {
+                return false;
+            }
 
-            if (wordArr[i] == 'u' && i > 0 && wordArr[i - 1] == 'q') {
+            if (afterQ) {
+                if (letter != 'u' - 'a') {
+                    return false;
+                }
+                afterQ = false;
                 continue;
             }
 
-            finger = finger.getChild(wordArr[i]);
+            char c = (char) ('a' + letter);
+            DNode child = finger.children.hasChild(c);
+            if (child == null) {
+                if (!checked && !isWellFormed(chars, bytes, i, length)) {
+                    return false;
+                }
+                checked = true;
+                child = finger.children.putChild(c);
+            }
+            finger = child;
+            afterQ = letter == 'q' - 'a';
+        }
+        if (afterQ) {
+            return false;
         }
 
         finger.character = Character.toUpperCase(finger.character);
@@ -37,34 +157,91 @@ public class DictionaryTrie {
     }
 
     /**
-     * Checks if a word is valid in the Trie.
+     * Checks that the rest of a word is letters only and every Q in it, including a last one,
+     * is followed by a U.
      *
-     * @param wordRaw The word to check for validity.
-     * @return True if the word is valid, false otherwise.
+     * @param chars  The word, or null if it is given as bytes.
+     * @param bytes  The word as ASCII bytes, or null if it is given as chars.
+     * @param from   The index to start at, which must not be straight after a Q.
+     * @param length The length of the word.
+     * @return True if the rest of the word can be inserted, false otherwise.
      */
-    public boolean isValid(final String wordRaw) {
-        final String word = wordRaw.toLowerCase();
+    private static boolean isWellFormed(final CharSequence chars, final byte[] bytes, final int from, final int length) {
+        boolean afterQ = false;
 
-        if (!(word.matches("^[a-z]*$") && !word.matches(".*q[^u].*"))) {
-            return false;
+        for (int i = from; i < length; i++) {
+            int letter = letter(bytes != null ? bytes[i] & 0xff : chars.charAt(i));
+            if (letter < 0 || afterQ && letter != 'u' - 'a') {
+                return false;
+            }
+            afterQ = !afterQ && letter == 'q' - 'a';
         }
+        return !afterQ;
+    }
 
-        char[] wordArr = word.toCharArray();
-        DNode finger = root;
+    /**
+     * Folds an ASCII letter of either case to its index in the alphabet.
+     *
+     * @param c The character.
+     * @return The index from 0 to 25, or -1 if the character is not an ASCII letter.
+     */
+    private static int letter(final int c) {
+        int letter = (c | 0x20) - 'a';
+        return letter >= 0 && letter < 26 ? letter : -1;
+    }
 
-        for (int i = 0; i < wordArr.length; i++) {
-            if (wordArr[i] == 'u' && i > 0 && wordArr[i - 1] == 'q') {
-                continue;
-            }
+    /**
+     * Freezes the Trie into the packed layout searched by {@link BogglePlayer}.
+     *
+     * @return The packed dictionary.
+     * @see #freeze(boolean)
+     */
+    public PackedTrie freeze() {
+        return freeze(false);
+    }
 
-            if (!finger.hasChild(wordArr[i])) {
-                return false;
-            }
+    /**
+     * Freezes the Trie into the packed layout searched by {@link BogglePlayer}. The Trie is
+     * walked in letter order and its words are streamed into a {@link PackedTrieBuilder}, so the
+     * result is the same as building from a sorted word file. A Q node stands for "QU", and words
+     * the builder rejects (shorter than three letters or longer than
+     * {@link PackedTrie#MAX_DEPTH}) are left out. The Trie can still be changed afterwards, it is
+     * not tied to the packed copy.
+     *
+     * @param minimize True to merge identical subtrees into a DAWG.
+     * @return The packed dictionary.
+     */
+    public PackedTrie freeze(final boolean minimize) {
+        PackedTrieBuilder builder = new PackedTrieBuilder(minimize);
+        freeze(root, new StringBuilder(), builder);
+        return builder.build();
+    }
+
+    /**
+     * Adds the words below a node to a builder in alphabetical order.
+     *
+     * @param node    The node reached by the word so far.
+     * @param word    The letters leading to the node, restored before returning.
+     * @param builder The builder to add the words to.
+     */
+    private void freeze(final DNode node, final StringBuilder word, final PackedTrieBuilder builder) {
+        if (node.isLeaf()) {
+            builder.add(word);
+        }
+        if (word.length() >= PackedTrie.MAX_DEPTH) {
+            return;
+        }
 
-            finger = finger.getChild(wordArr[i]);
+        int length = word.length();
+        for (int rest = node.children.mask; rest != 0; rest &= rest - 1) {
+            char c = (char) ('a' + Integer.numberOfTrailingZeros(rest));
+            word.append(c);
+            if (c == 'q') {
+                word.append('u');
+            }
+            freeze(node.children.hasChild(c), word, builder);
+            word.setLength(length);
         }
-        ;
-        return Character.isUpperCase(finger.character);
     }
 
     /**
@@ -84,7 +261,7 @@ public class DictionaryTrie {
          */
         public char character;
 
-        private ChildHashSet children;
+        private ChildSet children;
 
         /**
          * Constructs a Trie node with the given character.
@@ -93,7 +270,7 @@ public class DictionaryTrie {
          */
         private DNode(final char c) {
             character = c;
-            children = new ChildHashSet();
+            children = new ChildSet();
         }
 
         /**
@@ -136,17 +313,16 @@ public class DictionaryTrie {
         }
 
         /**
-         * Represents a set of children nodes in the Trie.
+         * Represents a set of children nodes in the Trie. A 26-bit mask records which letters are
+         * present. Narrow nodes keep their children in a compact array in letter order, where the
+         * index of a child is the number of mask bits below its letter. Once a node has more than
+         * {@code NARROW} children it switches to a direct array with one slot per letter.
          */
-        private class ChildHashSet {
-            DNode[] children;
+        private class ChildSet {
+            private static final int NARROW = 8;
 
-            /**
-             * Constructs an empty set of children nodes.
-             */
-            public ChildHashSet() {
-                children = new DNode[0];
-            }
+            int mask;
+            DNode[] children;
 
             /**
              * Gets the child node with the given character.
@@ -155,20 +331,12 @@ public class DictionaryTrie {
              * @return The child node if found, null otherwise.
              */
             DNode hasChild(char c) {
-                if (children.length == 0) {
+                int letter = Character.toLowerCase(c) - 'a';
+                int bit = 1 << letter;
+                if ((mask & bit) == 0) {
                     return null;
                 }
-                int index = Character.toLowerCase(c) - 'a';
-                int searchPosStart = index % children.length;
-                for (int i = 0; i < children.length; i++) {
-                    if (children[(i + searchPosStart) % children.length] == null) {
-                        return null;
-                    }
-                    if (Character.toLowerCase(children[(i + searchPosStart) % children.length].character) == Character.toLowerCase(c)) {
-                        return children[(i + searchPosStart) % children.length];
-                    }
-                }
-                return null;
+                return children[children.length == 26 ? letter : Integer.bitCount(mask & (bit - 1))];
             }
 
             /**
@@ -180,33 +348,40 @@ public class DictionaryTrie {
             DNode putChild(char c) {
                 DNode child = hasChild(c);
                 if (child != null) return child;
-                DNode[] newChildren = new DNode[children.length + 1];
-
-                int index = Character.toLowerCase(c) - 'a';
-                int searchPosStart = index % newChildren.length;
-
-                for (DNode childi : children) {
 
-                    int tryIndex = searchPosStart % newChildren.length;
+                int letter = Character.toLowerCase(c) - 'a';
+                int bit = 1 << letter;
+                child = new DNode(c);
 
-                    while (newChildren[tryIndex] != null) {
-                        tryIndex = (tryIndex + 1) % newChildren.length;
-
-                    }
-
-                    newChildren[tryIndex] = childi;
+                if (children == null) {
+                    children = new DNode[1];
+                } else if (children.length == 26) {
+                    children[letter] = child;
+                    mask |= bit;
+                    return child;
                 }
 
-                int tryIndex = searchPosStart % newChildren.length;
-
-                while (newChildren[tryIndex] != null) {
-                    tryIndex = (tryIndex + 1) % newChildren.length;
+                int count = Integer.bitCount(mask);
+                if (count == children.length) {
+                    if (count == NARROW) {
+                        // Spread the children out by letter
+                        DNode[] wide = new DNode[26];
+                        for (DNode childi : children) {
+                            wide[Character.toLowerCase(childi.character) - 'a'] = childi;
+                        }
+                        wide[letter] = child;
+                        children = wide;
+                        mask |= bit;
+                        return child;
+                    }
+                    children = Arrays.copyOf(children, count * 2);
                 }
 
-                newChildren[tryIndex] = new DNode(c);
-
-                children = newChildren;
-                return children[tryIndex];
+                int index = Integer.bitCount(mask & (bit - 1));
+                System.arraycopy(children, index, children, index + 1, count - index);
+                children[index] = child;
+                mask |= bit;
+                return child;
             }
 
         }
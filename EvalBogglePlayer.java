@@ -1,7 +1,9 @@
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.List;
 import java.util.ArrayList;
@@ -15,10 +17,25 @@ import java.util.Random;
   Pseudocode: Philip Chan
 
   Usage: EvalBogglePlayer wordFile [seed]
+         EvalBogglePlayer -batch boards wordFile [seed]
+         EvalBogglePlayer -verify boards wordFile [seed]
+         EvalBogglePlayer -metrics boards wordFile [seed [jsonFile]]
 
   Input:
   wordFile has valid words, one on each line
   seed is for generating different boards [optional]
+  boards is the number of boards for the modes below, at least 1
+  -batch  plays that many boards through one player after a warm-up
+          of boards/10 other boards, and reports boards/sec, latency
+          percentiles and total points of the measured boards
+  -verify checks on that many boards that the recursive, the
+          explicit stack and the parallel DFS engines find exactly the
+          same words
+  -metrics plays that many boards through a player recording its
+          solver's hot path, and prints the DFS calls, child probes,
+          fan-out, pruned branches, dedup hits, words and time per
+          phase; with jsonFile the totals are also appended to it as
+          one JSON line
 
   Description:
 
@@ -46,16 +63,46 @@ import java.util.Random;
  */
 
 public class EvalBogglePlayer {
-    private static ArrayList<String> dictionary = new ArrayList<>();
+    private static WordSet dictionary = new WordSet();
     private static final ArrayList<String> boggleDices = new ArrayList<>(Arrays.asList(
             "AAEEGN", "ABBJOO", "ACHOPS", "AFFKPS", "AOOTTW", "CIMOTU", "DEILRX", "DELRVY",
             "DISTTY", "EEGHNW", "EEINSU", "EHRTVW", "EIOSST", "ELRTTY", "HIMNUQ", "HLNNRZ"));
 
     public static void main(String[] args) throws IOException {
 
+        // A mode takes a board count, a word file and a seed (-metrics also a JSON lines file);
+        // a wrong count of arguments, an unknown mode or a bad number gets the usage message
+        if (args.length > 0 && args[0].startsWith("-")) {
+            int maxArgs = args[0].equals("-metrics") ? 5 : 4;
+            int boards = 0;
+            long seed = 123456789;
+            try {
+                if (args.length >= 3 && args.length <= maxArgs) {
+                    boards = Integer.parseInt(args[1]);
+                    if (args.length >= 4)
+                        seed = Long.parseLong(args[3]);
+                }
+            } catch (NumberFormatException e) {
+                boards = 0;
+            }
+
+            if (boards > 0 && args[0].equals("-batch")) {
+                batch(boards, args[2], seed);
+                return;
+            }
+            if (boards > 0 && args[0].equals("-verify")) {
+                verifyEngines(boards, args[2], seed);
+                return;
+            }
+            if (boards > 0 && args[0].equals("-metrics")) {
+                metrics(boards, args[2], seed, args.length == 5 ? args[4] : null);
+                return;
+            }
+            usage();
+        }
+
         if (args.length < 1 || args.length > 2) {
-            System.err.println("Usage: EvalBogglePlayer wordFile [seed]");
-            System.exit(-1);
+            usage();
         }
 
         // for getting cpu time
@@ -101,20 +148,7 @@ public class EvalBogglePlayer {
         Random rnd = new Random(seed);
 
         //Generate random board, and pass it to the BogglePlayer to play Boggle
-        char[][] board = new char[4][4];
-        int length = boggleDices.size();
-
-        //Create random board
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                int diceIndex = rnd.nextInt(length);
-                String dice = boggleDices.get(diceIndex);
-                board[i][j] = dice.charAt(rnd.nextInt(6));
-                boggleDices.set(diceIndex, boggleDices.get(length - 1));
-                boggleDices.set(length - 1, dice);
-                length--;
-            }
-        }
+        char[][] board = rollBoard(rnd);
 
         //Calculate the time taken to find the words on the board
         long startTime = bean.getCurrentThreadCpuTime();
@@ -141,11 +175,7 @@ public class EvalBogglePlayer {
 
        
         //Read the dictionary
-        BufferedReader file = new BufferedReader(new FileReader(args[0]));
-        String line;
-        while ( (line = file.readLine()) != null) {
-            dictionary.add(line.toUpperCase());
-        }
+        readDictionary(args[0]);
 
         //Calculate points for the words found
         int totalPoints = calculatePoints(words, board);
@@ -163,6 +193,237 @@ public class EvalBogglePlayer {
         BogglePlayer player2 = player;  // keep player used to avoid garbage collection of player
     }
 
+    /**
+     * Reads the dictionary used to check the words
+     *
+     * @param wordFile The dictionary
+     * @throws IOException If the dictionary can't be read
+     */
+    static void readDictionary(String wordFile) throws IOException {
+        BufferedReader file = new BufferedReader(new FileReader(wordFile, StandardCharsets.UTF_8));
+        String line;
+        dictionary = new WordSet();
+        while ( (line = file.readLine()) != null) {
+            dictionary.add(line);
+        }
+        file.close();
+    }
+
+    /**
+     * Prints how to run the program and exits
+     */
+    private static void usage() {
+        System.err.println("Usage: EvalBogglePlayer wordFile [seed]");
+        System.err.println("       EvalBogglePlayer -batch boards wordFile [seed]");
+        System.err.println("       EvalBogglePlayer -verify boards wordFile [seed]");
+        System.err.println("       EvalBogglePlayer -metrics boards wordFile [seed [jsonFile]]");
+        System.exit(-1);
+    }
+
+    /**
+     * Plays many boards through one player and reports throughput, per-board latency and
+     * points. A warm-up of boards/10 (at least 1) other boards is played first so the
+     * measured boards run on JIT-compiled code; it is reported separately.
+     *
+     * @param boards   The number of measured boards
+     * @param wordFile The dictionary
+     * @param seed     The seed for rolling the boards
+     * @throws IOException If the dictionary can't be read
+     */
+    private static void batch(int boards, String wordFile, long seed) throws IOException {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        DecimalFormat df = new DecimalFormat("0.####E0");
+
+        System.out.println("Preprocessing in BogglePlayer...");
+        long startPreProcTime = bean.getCurrentThreadCpuTime();
+        BogglePlayer player = new BogglePlayer(wordFile);
+        long endPreProcTime = bean.getCurrentThreadCpuTime();
+        System.out.println("Pre-processing in seconds: " + df.format((endPreProcTime - startPreProcTime) / 1E9));
+        readDictionary(wordFile);
+
+        Random rnd = new Random(seed);
+        int warmup = Math.max(1, boards / 10);
+        char[][][] warmupBoards = new char[warmup][][];
+        char[][][] measuredBoards = new char[boards][][];
+        for (int i = 0; i < warmup; i++)
+            warmupBoards[i] = rollBoard(rnd);
+        for (int i = 0; i < boards; i++)
+            measuredBoards[i] = rollBoard(rnd);
+
+        System.out.println("Warming up on " + warmup + " boards...");
+        reportBatch(player, warmupBoards, bean, df);
+        System.out.println("Measuring " + boards + " boards...");
+        reportBatch(player, measuredBoards, bean, df);
+        System.out.println("Peak memory in bytes: " + df.format((double) peakMemoryUsage()));
+    }
+
+    /**
+     * Plays many boards through a player built with metrics and reports what its solver did.
+     * Run on its own, since once a player records, the hooks of the other players are no
+     * longer compiled away.
+     *
+     * @param boards   The number of boards
+     * @param wordFile The dictionary
+     * @param seed     The seed for rolling the boards
+     * @param jsonFile The file the totals are appended to as a JSON line, null for none
+     * @throws IOException If the dictionary or jsonFile can't be read or written
+     */
+    private static void metrics(int boards, String wordFile, long seed, String jsonFile) throws IOException {
+        BogglePlayer player = new BogglePlayer(wordFile, BoggleOptions.builder().metrics(true).build());
+        Random rnd = new Random(seed);
+        for (int i = 0; i < boards; i++)
+            player.getWords(rollBoard(rnd));
+
+        SolverMetrics.Snapshot metrics = player.getMetrics();
+        System.out.print(metrics);
+        if (jsonFile != null) {
+            try (FileWriter out = new FileWriter(jsonFile, StandardCharsets.UTF_8, true)) {
+                out.write(metrics.toJson() + System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Plays the boards one after the other, timing each getWords call in cpu time,
+     * then scores all the words and prints the statistics
+     *
+     * @param player The player
+     * @param boards The boards to play
+     * @param bean   The bean giving the cpu time of this thread
+     * @param df     The format for times
+     */
+    private static void reportBatch(BogglePlayer player, char[][][] boards, ThreadMXBean bean, DecimalFormat df) {
+        Word[][] words = new Word[boards.length][];
+        long[] latency = new long[boards.length];
+        long total = 0;
+        for (int i = 0; i < boards.length; i++) {
+            long startTime = bean.getCurrentThreadCpuTime();
+            words[i] = player.getWords(boards[i]);
+            latency[i] = bean.getCurrentThreadCpuTime() - startTime;
+            total += latency[i];
+        }
+
+        long totalPoints = 0;
+        for (int i = 0; i < boards.length; i++)
+            totalPoints += calculatePoints(words[i], boards[i]);
+
+        Arrays.sort(latency);
+        double seconds = Math.max(total, 1) / 1.0E9;
+        System.out.printf("Boards/sec: %.1f\n", boards.length / seconds);
+        System.out.println("Time in seconds: " + df.format(seconds));
+        System.out.println("Latency in seconds p50: " + df.format(latency[(latency.length - 1) / 2] / 1.0E9)
+                           + "  p99: " + df.format(latency[(int) ((latency.length - 1) * 0.99)] / 1.0E9)
+                           + "  max: " + df.format(latency[latency.length - 1] / 1.0E9));
+        System.out.printf("Points: %d (%.2f per board)\n", totalPoints, (double) totalPoints / boards.length);
+    }
+
+    /**
+     * Rolls a random board from the 16 Boggle dice
+     *
+     * @param rnd The random generator
+     * @return Returns a 4x4 board
+     */
+    static char[][] rollBoard(Random rnd) {
+        char[][] board = new char[4][4];
+        ArrayList<String> dices = new ArrayList<>(boggleDices);
+        int length = dices.size();
+
+        //Create random board
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                int diceIndex = rnd.nextInt(length);
+                String dice = dices.get(diceIndex);
+                board[i][j] = dice.charAt(rnd.nextInt(6));
+                dices.set(diceIndex, dices.get(length - 1));
+                dices.set(length - 1, dice);
+                length--;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Checks that the recursive, the explicit stack and the parallel DFS engines return exactly
+     * the same words with the same paths, both for every word on the board and for the best 20.
+     * The best 20 are also checked for all the boards played at once by a parallel player's
+     * solveAll, which nests getWords calls on the pool's threads
+     *
+     * @param boards   The number of boards to roll
+     * @param wordFile The dictionary
+     * @param seed     The seed for rolling the boards
+     */
+    private static void verifyEngines(int boards, String wordFile, long seed) {
+        PackedTrie trie = PackedTrie.open(wordFile);
+        LiveDictionary live = new LiveDictionary(trie);
+        BoggleOptions all = BoggleOptions.builder().maxWords(Math.max(trie.wordCount, 1)).build();
+        BoggleOptions iterativeOptions = BoggleOptions.builder().iterative(true).build();
+        BoggleOptions parallelOptions = BoggleOptions.builder().parallel(true).build();
+        BoggleSolver[] recursive = {new BoggleSolver(live, all), new BoggleSolver(live, BoggleOptions.DEFAULT)};
+        BoggleSolver[] iterative = {new BoggleSolver(live, all.toBuilder().iterative(true).build()), new BoggleSolver(live, iterativeOptions)};
+        BoggleSolver[] parallel = {new BoggleSolver(live, all.toBuilder().parallel(true).build()), new BoggleSolver(live, parallelOptions)};
+
+        Random rnd = new Random(seed);
+        long totalWords = 0;
+        char[][][] rolled = new char[boards][][];
+        List<List<String>> best = new ArrayList<>();
+        for (int b = 0; b < boards; b++) {
+            char[][] board = rollBoard(rnd);
+            rolled[b] = board;
+            for (int e = 0; e < recursive.length; e++) {
+                List<String> expected = describe(recursive[e].getWords(board));
+                List<String> actual = describe(iterative[e].getWords(board));
+                if (!expected.equals(actual)) {
+                    System.err.println("Engines differ on board " + b + ": " + Arrays.deepToString(board));
+                    System.err.println("recursive: " + expected);
+                    System.err.println("iterative: " + actual);
+                    System.exit(-1);
+                }
+                actual = describe(parallel[e].getWords(board));
+                if (!expected.equals(actual)) {
+                    System.err.println("Engines differ on board " + b + ": " + Arrays.deepToString(board));
+                    System.err.println("recursive: " + expected);
+                    System.err.println("parallel:  " + actual);
+                    System.exit(-1);
+                }
+                if (e == 0)
+                    totalWords += expected.size();
+                else
+                    best.add(expected);
+            }
+        }
+
+        Word[][] solved = new BogglePlayer(trie, parallelOptions).solveAll(rolled);
+        for (int b = 0; b < boards; b++) {
+            List<String> actual = describe(solved[b]);
+            if (!best.get(b).equals(actual)) {
+                System.err.println("Engines differ on board " + b + ": " + Arrays.deepToString(rolled[b]));
+                System.err.println("recursive: " + best.get(b));
+                System.err.println("solveAll:  " + actual);
+                System.exit(-1);
+            }
+        }
+        System.out.println("Engines agree on " + boards + " boards, " + totalWords + " words");
+    }
+
+    /**
+     * Describes each word with its path, sorted, so word lists can be compared
+     *
+     * @param words The words to describe
+     * @return Returns one "WORD r,c r,c ..." string per word
+     */
+    private static List<String> describe(Word[] words) {
+        List<String> described = new ArrayList<>();
+        for (Word w : words) {
+            StringBuilder sb = new StringBuilder(w.getWord());
+            for (int i = 0; i < w.getPathLength(); i++) {
+                sb.append(' ').append(w.getLetterRow(i)).append(',').append(w.getLetterCol(i));
+            }
+            described.add(sb.toString());
+        }
+        described.sort(null);
+        return described;
+    }
+
     /**
      * Calculates the points for the words found on the board
      *
@@ -170,7 +431,7 @@ public class EvalBogglePlayer {
      * @param board The board on which the words were found
      * @return Returns the number of points
      */
-    private static int calculatePoints(Word[] words, char[][] board) {
+    static int calculatePoints(Word[] words, char[][] board) {
         int points = 0;
 
 	if (words == null)
@@ -274,7 +535,7 @@ public class EvalBogglePlayer {
         }
 
         //Check if word exists in the dictionary
-        if (!dictionary.contains(word.getWord().toUpperCase())) {
+        if (!dictionary.contains(word.getWord())) {
             return -((length - 2) * (length - 2));
         }
 
@@ -323,5 +584,97 @@ public class EvalBogglePlayer {
     return total;
     }
 
+    /**
+     * Hash set of the dictionary words, built once and shared by every board checked.
+     *
+     * Words are stored upper case, back to back in one char array; an open-addressing
+     * table holds the index of each word, so a lookup hashes the word once and compares
+     * a few chars, instead of scanning the whole word list.
+     */
+    static class WordSet {
+        private char[] chars = new char[1 << 16];  // all words, upper case, back to back
+        private int length;                        // chars used
+        private int[] starts = new int[1 << 12];   // word i is chars[starts[i] .. starts[i + 1])
+        private int count;                         // words stored
+        private int[] table = new int[1 << 12];    // word index + 1, 0 for an empty slot
+
+        /**
+         * Adds a word, ignoring case; duplicates are stored once
+         *
+         * @param word The word to add
+         */
+        void add(String word) {
+            if (contains(word))
+                return;
+
+            if (length + word.length() > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + word.length()));
+            if (count + 2 > starts.length)
+                starts = Arrays.copyOf(starts, 2 * starts.length);
+            for (int i = 0; i < word.length(); i++)
+                chars[length++] = Character.toUpperCase(word.charAt(i));
+            starts[++count] = length;
+
+            // keep the table at most half full
+            if (2 * count > table.length) {
+                table = new int[2 * table.length];
+                for (int w = 0; w < count; w++)
+                    insert(w);
+            } else {
+                insert(count - 1);
+            }
+        }
+
+        /**
+         * Checks if the set holds a word, ignoring case
+         *
+         * @param word The word to look up
+         * @return Returns true if the word is in the set
+         */
+        boolean contains(String word) {
+            int mask = table.length - 1;
+            for (int slot = hash(word) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int w = table[slot] - 1;
+                if (starts[w + 1] - starts[w] == word.length() && matches(w, word))
+                    return true;
+            }
+            return false;
+        }
+
+        // put word w in the first free slot of its probe sequence
+        private void insert(int w) {
+            int h = 0;
+            for (int i = starts[w]; i < starts[w + 1]; i++)
+                h = 31 * h + chars[i];
+            int mask = table.length - 1;
+            int slot = mix(h) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = w + 1;
+        }
+
+        // compare stored word w with a word of the same length, ignoring case
+        private boolean matches(int w, String word) {
+            for (int i = 0, j = starts[w]; i < word.length(); i++, j++)
+                if (chars[j] != Character.toUpperCase(word.charAt(i)))
+                    return false;
+            return true;
+        }
+
+        // hash of the upper case word, same as insert computes from the stored chars
+        private static int hash(String word) {
+            int h = 0;
+            for (int i = 0; i < word.length(); i++)
+                h = 31 * h + Character.toUpperCase(word.charAt(i));
+            return mix(h);
+        }
+
+        // spread the bits of a String-style hash over the table
+        private static int mix(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
 }
 
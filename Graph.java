@@ -2,6 +2,8 @@ import java.util.Iterator;
 
 /**
  * Represents a graph structure for storing paths.
+ * Each step is one byte holding the row in the high nibble and the column in the low nibble,
+ * so boards up to 16x16 can be stored.
  */
 public class Graph implements Iterable<Graph.Node> {
 
@@ -26,7 +28,7 @@ public class Graph implements Iterable<Graph.Node> {
          * @return An integer array representing XY coordinates.
          */
         public int[] getXY() {
-            return new int[]{(xy & 0b1100) >>> 2, xy & 0b11};
+            return new int[]{(xy & 0xf0) >>> 4, xy & 0x0f};
         }
     }
 
@@ -57,12 +59,12 @@ public class Graph implements Iterable<Graph.Node> {
      * @throws IllegalArgumentException if the coordinates are out of bounds.
      */
     public Graph cloneAdd(int x, int y) {
-        if (x > 3 || x < 0 || y > 3 || y < 0) throw new IllegalArgumentException();
+        if (x > 15 || x < 0 || y > 15 || y < 0) throw new IllegalArgumentException();
 
         Graph cloned = new Graph(this.path.length + 1);
         System.arraycopy(this.path, 0, cloned.path, 0, path.length);
 
-        cloned.path[this.path.length] = (byte) ((byte) (x << 2) + (byte) (y));
+        cloned.path[this.path.length] = (byte) ((x << 4) + y);
         return cloned;
     }
 
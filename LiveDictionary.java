@@ -0,0 +1,180 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * One immutable version of a dictionary that is patched while solvers run: a base
+ * {@link PackedTrie} plus the changes applied since it was built.
+ *
+ * <p>The base tree is never written. A word removed from it is marked in a bit set indexed by
+ * its ordinal, since in a DAWG one entry can end many words and clearing its word flag would
+ * remove them all. Words added are kept in a small overlay trie that the solver searches after
+ * the base; their ordinals follow the base ones, so a word is numbered in
+ * [0, {@link #wordCount}) either way.</p>
+ *
+ * <p>{@link #word} spells a word from its ordinal and keeps the String, so a word returned on
+ * many boards is built once. The base word cache is handed on to every later version, since
+ * base ordinals never change.</p>
+ *
+ * <p>{@link #apply} returns a new version and leaves this one untouched, so a solver that
+ * read one version keeps a consistent view until it is done, see
+ * {@link BogglePlayer#reload}. A delta file has one change per line: "+word" adds a word and
+ * "-word" removes it. Blank lines are skipped, and words the builder rejects, such as words
+ * under three letters, are ignored as they are in word files.</p>
+ */
+public class LiveDictionary {
+    /**
+     * The dictionary the changes apply to.
+     */
+    public final PackedTrie base;
+
+    /**
+     * The words added since base was built, numbered after the base words.
+     */
+    public final PackedTrie overlay;
+
+    private final long[] removed;           // Bit per base ordinal, set if the word was removed
+    private final TreeSet<String> added;    // Upper case words in overlay, never changed after construction
+    private final String[] baseWords;       // Base words spelled so far by ordinal, shared by all versions
+    private final String[] overlayWords;    // Overlay words spelled so far by overlay ordinal
+
+    /**
+     * Wraps a dictionary with no changes.
+     *
+     * @param base The dictionary.
+     */
+    public LiveDictionary(PackedTrie base) {
+        this(base, new long[(base.wordCount + 63) >>> 6], new TreeSet<String>(), new String[base.wordCount]);
+    }
+
+    // Constructor for a version with the given changes, which it takes ownership of
+    private LiveDictionary(PackedTrie base, long[] removed, TreeSet<String> added, String[] baseWords) {
+        this.base = base;
+        this.removed = removed;
+        this.added = added;
+        this.baseWords = baseWords;
+
+        PackedTrieBuilder builder = new PackedTrieBuilder();
+        for (String word : added) {
+            builder.add(word);
+        }
+        overlay = added.isEmpty() ? PackedTrie.empty() : builder.build();
+        overlayWords = new String[overlay.wordCount];
+    }
+
+    /**
+     * Returns the number of ordinals in use, the base words followed by the overlay words.
+     *
+     * @return The base word count plus the overlay word count.
+     */
+    public int wordCount() {
+        return base.wordCount + overlay.wordCount;
+    }
+
+    /**
+     * Checks if a base word was removed.
+     *
+     * @param ordinal The ordinal of the word in base.
+     * @return True if the word was removed, false otherwise.
+     */
+    public boolean isRemoved(int ordinal) {
+        return (removed[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Gets the word with the given ordinal, spelling it the first time it is asked for. Threads
+     * racing on the same word may each spell it once; all the copies are equal.
+     *
+     * @param ordinal The ordinal, in [0, wordCount()).
+     * @return The word in upper case with 'Q' spelled "QU".
+     */
+    public String word(int ordinal) {
+        String[] words = baseWords;
+        PackedTrie trie = base;
+        if (ordinal >= base.wordCount) {
+            words = overlayWords;
+            trie = overlay;
+            ordinal -= base.wordCount;
+        }
+
+        String word = words[ordinal];
+        if (word == null) {
+            word = trie.word(ordinal);
+            words[ordinal] = word;
+        }
+        return word;
+    }
+
+    /**
+     * Checks if a word is in this version of the dictionary.
+     *
+     * @param word The word.
+     * @return True if the word is in base and not removed, or was added.
+     */
+    public boolean contains(CharSequence word) {
+        int ordinal = base.ordinal(word);
+        return ordinal >= 0 ? !isRemoved(ordinal) : overlay.ordinal(word) >= 0;
+    }
+
+    /**
+     * Reads a delta file and applies it.
+     *
+     * @param deltaFile File with one "+word" or "-word" line per change.
+     * @return The new version.
+     * @throws IOException If the file can't be read.
+     * @throws IllegalArgumentException If a line is neither blank nor a change.
+     */
+    public LiveDictionary apply(String deltaFile) throws IOException {
+        long[] newRemoved = removed.clone();
+        TreeSet<String> newAdded = new TreeSet<String>(added);
+
+        try (BufferedReader in = new BufferedReader(new FileReader(deltaFile, StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                char change = line.charAt(0);
+                if (change != '+' && change != '-') {
+                    throw new IllegalArgumentException(deltaFile + ":" + number + ": expected +word or -word, got " + line);
+                }
+
+                String word = line.substring(1).trim().toUpperCase(Locale.ROOT);
+                int ordinal = base.ordinal(word);
+                if (ordinal >= 0) {
+                    if (change == '+') {
+                        newRemoved[ordinal >>> 6] &= ~(1L << ordinal);
+                    } else {
+                        newRemoved[ordinal >>> 6] |= 1L << ordinal;
+                    }
+                } else if (change == '+') {
+                    newAdded.add(word);
+                } else {
+                    newAdded.remove(word);
+                }
+            }
+        }
+
+        return new LiveDictionary(base, newRemoved, newAdded, baseWords);
+    }
+
+    /**
+     * Returns a summary of the changes, for logging.
+     *
+     * @return The number of base words removed and of words added.
+     */
+    @Override
+    public String toString() {
+        int count = 0;
+        for (long bits : removed) {
+            count += Long.bitCount(bits);
+        }
+        return "LiveDictionary[" + base.wordCount + " base words, " + count + " removed, " + overlay.wordCount + " added]";
+    }
+}
@@ -0,0 +1,395 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Immutable dictionary shared by every solver, stored as one packed int array.
+ *
+ * <p>Each node is a header followed by one entry per child, in letter order. The header
+ * packs a mask of the child letters (bit i for letter 'A' + i, bits 0-25) and the length of
+ * the longest word suffix below the node (bits 26-31), see {@link #hCompose}. A child is
+ * found with a bit test and a popcount, see {@link #hFindChild}. An entry packs the word flag (bit 31), the letter (bits 23-30)
+ * and the offset of the child node (bits 0-22), see {@link #dCompose}.</p>
+ *
+ * <p>A built tree can be saved as a binary image with {@link #save} and mapped back with
+ * {@link #load}, which skips parsing the word file. The tree is copied out of the mapping
+ * into heap arrays, which the DFS indexes directly. Usage: PackedTrie wordFile [imageFile],
+ * where imageFile defaults to wordFile.bin so {@link #open} picks it up.</p>
+ */
+public class PackedTrie {
+    /**
+     * The packed dictionary tree, the root node is at offset 0.
+     */
+    public final int[] tree;
+
+    /**
+     * Rank of each entry in tree: the number of words below the entry's earlier siblings.
+     * The sum of the ranks along a path, plus one for every word passed on the way, is the
+     * ordinal of the word the path spells, unique in [0, wordCount) even in a DAWG.
+     * The slot of a node header holds the node's required letters instead: the mask of the
+     * letters found in every word suffix below the node, 0 for a node with no children.
+     */
+    public final int[] ranks;
+
+    /**
+     * Number of words in the dictionary.
+     */
+    public final int wordCount;
+
+    /**
+     * Largest suffix length a node header can hold.
+     */
+    public static final int MAX_DEPTH = 63;
+
+    /**
+     * First int of a binary image, "BGTR" in ASCII.
+     */
+    public static final int IMAGE_MAGIC = 0x42475452;
+
+    /**
+     * Layout version of the binary image, bumped whenever the packed layout or the rules for
+     * which words it holds change.
+     */
+    public static final int IMAGE_VERSION = 5;
+
+    /**
+     * Builds a binary image from a word file, minimized into a DAWG with -dawg.
+     *
+     * @param args [-dawg] the word file and optionally the image file to write.
+     * @throws IOException If the image can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean minimize = args.length > 0 && args[0].equals("-dawg");
+        int first = minimize ? 1 : 0;
+        if (args.length - first < 1 || args.length - first > 2) {
+            System.err.println("Usage: PackedTrie [-dawg] wordFile [imageFile]");
+            System.exit(-1);
+        }
+        String wordFile = args[first];
+        String imageFile = args.length - first == 2 ? args[first + 1] : wordFile + ".bin";
+
+        PackedTrieBuilder builder = new PackedTrieBuilder(minimize);
+        PackedTrie dictionary = read(wordFile, builder);
+        System.out.println("Words: " + dictionary.wordCount);
+        System.out.println("Trie: " + builder.getNodeCount() + " nodes, " + 4L * builder.getUnminimizedSize() + " bytes");
+        if (minimize) {
+            System.out.println("DAWG: " + builder.getStoredNodeCount() + " nodes, " + 4L * dictionary.tree.length + " bytes");
+        }
+
+        dictionary.save(imageFile);
+        System.out.println("Wrote " + dictionary.tree.length + " ints to " + imageFile);
+    }
+
+    /**
+     * Opens a dictionary file, which is either a binary image or a word file.
+     * For a word file, an image saved next to it as wordFile.bin is loaded if it is not older
+     * than the word file and has the current layout version, otherwise the word file is parsed.
+     * A binary image given directly that can't be loaded, such as one from another layout
+     * version, is rebuilt from the word file it was saved next to if there is one.
+     *
+     * @param file The binary image or word file.
+     * @return The dictionary.
+     * @throws UncheckedIOException If the word file can't be read, or a binary image can't be loaded
+     *                              and has no word file to rebuild from.
+     */
+    public static PackedTrie open(String file) {
+        try {
+            if (isImage(file)) {
+                return load(file);
+            }
+        } catch (IOException e) {
+            String wordFile = file.endsWith(".bin") ? file.substring(0, file.length() - 4) : null;
+            if (wordFile == null || !new File(wordFile).isFile()) {
+                throw new UncheckedIOException(e);
+            }
+            return new PackedTrie(wordFile);
+        }
+
+        File image = new File(file + ".bin");
+        try {
+            if (image.lastModified() >= new File(file).lastModified() && isImage(image.getPath())) {
+                return load(image.getPath());
+            }
+        } catch (IOException e) {
+            // An image from another layout version, rebuild from the word file instead
+        }
+        return new PackedTrie(file);
+    }
+
+    /**
+     * Checks if a file starts with the binary image magic number.
+     *
+     * @param file The file to check.
+     * @return True if the file is a binary image, false otherwise.
+     * @throws IOException If the file exists but can't be read.
+     */
+    public static boolean isImage(String file) throws IOException {
+        if (!new File(file).isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.available() >= 4 && in.readInt() == IMAGE_MAGIC;
+        }
+    }
+
+    /**
+     * Maps a binary image written by {@link #save} and copies the tree and ranks out of the
+     * mapping in bulk. The pages come from the OS page cache, shared with any other JVM loading
+     * the same image, and the file is never held on the heap as bytes.
+     *
+     * @param imageFile The binary image.
+     * @return The dictionary stored in the image.
+     * @throws IOException If the image can't be read or has another layout version.
+     */
+    public static PackedTrie load(String imageFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(imageFile), StandardOpenOption.READ)) {
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+            if (ints.remaining() < 3 || ints.get() != IMAGE_MAGIC) {
+                throw new IOException(imageFile + " is not a dictionary image");
+            }
+            int version = ints.get();
+            if (version != IMAGE_VERSION) {
+                throw new IOException(imageFile + " has image version " + version + ", expected " + IMAGE_VERSION);
+            }
+            int length = ints.get();
+            if (length < 1 || ints.remaining() < 2L * length + 1) {
+                throw new IOException(imageFile + " is truncated");
+            }
+            int[] tree = new int[length];
+            int[] ranks = new int[length];
+            ints.get(tree);
+            ints.get(ranks);
+            return new PackedTrie(tree, ranks, ints.get());
+        }
+    }
+
+    /**
+     * Saves the tree as a binary image that {@link #load} can map.
+     *
+     * @param imageFile The file to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void save(String imageFile) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(imageFile)))) {
+            out.writeInt(IMAGE_MAGIC);
+            out.writeInt(IMAGE_VERSION);
+            out.writeInt(tree.length);
+            for (int data : tree) {
+                out.writeInt(data);
+            }
+            for (int rank : ranks) {
+                out.writeInt(rank);
+            }
+            out.writeInt(wordCount);
+        }
+    }
+
+    /**
+     * Builds the packed dictionary tree from a word file.
+     *
+     * @param wordFile File with one word per line.
+     * @throws UncheckedIOException If the file can't be read.
+     */
+    public PackedTrie(String wordFile) {
+        this(wordFile, false);
+    }
+
+    /**
+     * Builds the packed dictionary tree from a word file.
+     *
+     * @param wordFile File with one word per line.
+     * @param minimize True to merge identical subtrees into a DAWG.
+     * @throws UncheckedIOException If the file can't be read.
+     */
+    public PackedTrie(String wordFile, boolean minimize) {
+        this(read(wordFile, new PackedTrieBuilder(minimize)));
+    }
+
+    // Constructor sharing the arrays of another dictionary
+    private PackedTrie(PackedTrie other) {
+        this(other.tree, other.ranks, other.wordCount);
+    }
+
+    // Constructor for a tree that is already packed
+    PackedTrie(int[] tree, int[] ranks, int wordCount) {
+        this.tree = tree;
+        this.ranks = ranks;
+        this.wordCount = wordCount;
+    }
+
+    // Method to create a dictionary with no words
+    static PackedTrie empty() {
+        return new PackedTrie(new int[1], new int[1], 0);
+    }
+
+    /**
+     * Streams a word file through a {@link PackedTrieBuilder}. A sorted file is built in one
+     * pass; if the file turns out not to be sorted, its words are read again and sorted first.
+     *
+     * @param wordFile File with one word per line.
+     * @param builder  The builder to use, a minimizing one gives a DAWG.
+     * @return The dictionary.
+     * @throws UncheckedIOException If the file can't be read.
+     */
+    public static PackedTrie read(String wordFile, PackedTrieBuilder builder) {
+        try (BufferedReader in = new BufferedReader(new FileReader(wordFile, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                builder.add(line.trim());
+            }
+            return builder.build();
+        } catch (IllegalArgumentException e) {
+            builder.clear();
+            return readUnsorted(wordFile, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Method to build the tree from a word file that is not in alphabetical order
+    private static PackedTrie readUnsorted(String wordFile, PackedTrieBuilder builder) {
+        ArrayList<String> words = new ArrayList<String>();
+        try (BufferedReader in = new BufferedReader(new FileReader(wordFile, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                words.add(line.trim().toUpperCase(Locale.ROOT));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(words);
+
+        for (String word : words) {
+            builder.add(word);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Looks a word up and returns its ordinal. Case is folded and "QU" is read as one 'Q', as
+     * in {@link PackedTrieBuilder#add}.
+     *
+     * @param word The word to look up.
+     * @return The ordinal of the word, -1 if it is not in the dictionary.
+     */
+    public int ordinal(CharSequence word) {
+        int p = 0, ordinal = 0, entry = 0, entryOrdinal = -1;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int letter = (c | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            if (letter == 'q' - 'a') { // The 'U' after a 'Q' is part of the same entry
+                if (i + 1 == word.length() || (word.charAt(i + 1) | 0x20) != 'u') {
+                    return -1;
+                }
+                i++;
+            }
+
+            int index = hFindChild(tree[p], 1 << letter);
+            if (index == 0) {
+                return -1;
+            }
+            entry = tree[p + index];
+            entryOrdinal = ordinal + ranks[p + index];
+            ordinal = entry < 0 ? entryOrdinal + 1 : entryOrdinal;
+            p = dGetChild(entry);
+        }
+        return entry < 0 ? entryOrdinal : -1;
+    }
+
+    /**
+     * Spells the word with the given ordinal by walking down from the root, at each node taking
+     * the last entry whose rank is not above what is left of the ordinal.
+     *
+     * @param ordinal The ordinal, in [0, wordCount).
+     * @return The word in upper case with 'Q' spelled "QU".
+     * @throws IndexOutOfBoundsException If the ordinal is out of range.
+     */
+    public String word(int ordinal) {
+        if (ordinal < 0 || ordinal >= wordCount) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " of " + wordCount);
+        }
+
+        StringBuilder word = new StringBuilder();
+        int p = 0, rest = ordinal;
+        while (true) {
+            int count = hGetCount(tree[p]);
+            int index = 1;
+            while (index < count && ranks[p + index + 1] <= rest) {
+                index++;
+            }
+
+            int entry = tree[p + index];
+            rest -= ranks[p + index];
+            char letter = (char) ('A' + dGetByte(entry));
+            word.append(letter);
+            if (letter == 'Q') {
+                word.append('U');
+            }
+
+            if (entry < 0) {
+                if (rest == 0) {
+                    return word.toString();
+                }
+                rest--;
+            }
+            p = dGetChild(entry);
+        }
+    }
+
+    // Method to compose a node header from its child letter mask, depth is capped at MAX_DEPTH
+    public static int hCompose(int childMask, int depth) {
+        return (Math.min(depth, MAX_DEPTH) << 26) | childMask;
+    }
+
+    // Method to get the child count from a node header
+    public static int hGetCount(int header) {
+        return Integer.bitCount(header & 0x3ffffff);
+    }
+
+    // Method to get the index (from 1) of the entry for a letter bit (1 << letter) from a node
+    // header, 0 if the node has no such child or letterBit is 0
+    public static int hFindChild(int header, int letterBit) {
+        if ((header & letterBit) == 0) {
+            return 0;
+        }
+        return 1 + Integer.bitCount(header & (letterBit - 1));
+    }
+
+    // Method to get the length of the longest word suffix below a node from its header
+    public static int hGetDepth(int header) {
+        return header >>> 26;
+    }
+
+    // Method to compose dictionary node data
+    public static int dCompose(boolean isAWord, byte alphabet, int child) {
+        return ((isAWord ? 1 : 0) << 31) | (((int) alphabet) << 23) | (child);
+    }
+
+    // Method to get the alphabet byte from dictionary node data
+    public static byte dGetByte(int data) {
+        return (byte) (data >> 23);
+    }
+
+    // Method to get the child offset from dictionary node data
+    public static int dGetChild(int data) {
+        return data & 0x7fffff;
+    }
+}
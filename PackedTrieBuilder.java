@@ -0,0 +1,300 @@
+import java.util.Arrays;
+
+/**
+ * Streams sorted words straight into the packed layout of {@link PackedTrie}.
+ *
+ * <p>Only the path of the last word is kept open. When the next word leaves a branch, every
+ * node of that branch is complete and is written out with its children's offsets, so the
+ * whole build allocates nothing but the growing int arrays. The root is written last into
+ * slots reserved at offset 0.</p>
+ *
+ * <p>Each entry also gets a rank, the number of words in the subtrees of its earlier
+ * siblings. Summing ranks along a path gives every word a unique ordinal in
+ * [0, wordCount), see {@link PackedTrie#ranks}. The ranks slot of each node header holds the
+ * letters that every word below the node still needs.</p>
+ *
+ * <p>When minimizing, a finished node that is identical to one already written (same
+ * header, same entries, so the same subtree) is not written again and its parent points to
+ * the existing copy. The result is a DAWG with exactly the same packed layout.</p>
+ */
+public class PackedTrieBuilder {
+    private static final int MAX_LENGTH = PackedTrie.MAX_DEPTH;  // Longest word accepted
+    private static final int ALL_LETTERS = (1 << 26) - 1;        // Required letters of a node with no words below yet
+
+    private final boolean minimize;            // Whether identical subtrees are merged
+    private int[] tree;                        // Packed tree written so far
+    private int[] ranks;                       // Rank of each entry written so far
+    private int size;                          // Number of ints used in tree
+    private int[] blocks;                      // Open-addressing table of written node offsets + 1
+    private int blockCount;                    // Number of nodes in blocks
+    private int nodeCount;                     // Number of nodes finished, merged or not
+    private int unminimizedSize;               // Number of ints the tree would take without merging
+    private final byte[] prefix;               // Letters of the last word, 'Q' stands for "QU"
+    private int prefixLength;                  // Number of letters in prefix
+    private final boolean[] isAWord;           // Whether the open node at each level ends a word
+    private final int[][] entries;             // Finished child entries of the open node at each level
+    private final int[] entryCount;            // Number of finished children at each level
+    private final int[] childMask;             // Letters of the finished children at each level
+    private final int[] maxDepth;              // Longest word suffix below the open node at each level
+    private final int[] required;              // Letters in every word suffix below the open node at each level
+    private final int[][] entryWords;          // Number of words through each finished child entry
+    private final int[] wordCount;             // Number of words below the open node at each level
+    private final byte[] letters;              // Letters of the word being added
+
+    /**
+     * Constructs an empty builder for a plain trie.
+     */
+    public PackedTrieBuilder() {
+        this(false);
+    }
+
+    /**
+     * Constructs an empty builder.
+     *
+     * @param minimize True to merge identical subtrees into a DAWG.
+     */
+    public PackedTrieBuilder(boolean minimize) {
+        this.minimize = minimize;
+        tree = new int[1 << 16];
+        ranks = new int[tree.length];
+        blocks = minimize ? new int[1 << 12] : null;
+        prefix = new byte[MAX_LENGTH];
+        isAWord = new boolean[MAX_LENGTH + 1];
+        entries = new int[MAX_LENGTH + 1][26];
+        entryCount = new int[MAX_LENGTH + 1];
+        childMask = new int[MAX_LENGTH + 1];
+        maxDepth = new int[MAX_LENGTH + 1];
+        required = new int[MAX_LENGTH + 1];
+        entryWords = new int[MAX_LENGTH + 1][26];
+        wordCount = new int[MAX_LENGTH + 1];
+        letters = new byte[MAX_LENGTH + 1];
+        clear();
+    }
+
+    /**
+     * Drops every word added so far, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 27; // Root header and its 26 entries are written by build()
+        prefixLength = 0;
+        isAWord[0] = false;
+        entryCount[0] = 0;
+        childMask[0] = 0;
+        maxDepth[0] = 0;
+        required[0] = ALL_LETTERS;
+        wordCount[0] = 0;
+        if (minimize) {
+            Arrays.fill(blocks, 0);
+        }
+        blockCount = 0;
+        nodeCount = 1;
+        unminimizedSize = 27;
+    }
+
+    /**
+     * Adds a word. Case is folded and "QU" is stored as a single 'Q'.
+     * Words must arrive in alphabetical order, duplicates are allowed.
+     *
+     * @param word The word to add.
+     * @return True if the word was added, false if it is not a valid Boggle word.
+     * @throws IllegalArgumentException If the word sorts before the previous word.
+     */
+    public boolean add(CharSequence word) {
+        int length = word.length();
+        if (length < 3 || MAX_LENGTH < length) { // The length must be between 3 and 63, so depths fit the header
+            return false;
+        }
+
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if ('a' <= c && c <= 'z') {
+                c -= 'a' - 'A';
+            } else if (c < 'A' || 'Z' < c) {
+                return false;
+            }
+            letters[n++] = (byte) c;
+
+            if (c == 'Q') { // 'Q' must be followed by 'U', which shares its cube
+                if (i + 1 == length || (word.charAt(i + 1) != 'U' && word.charAt(i + 1) != 'u')) {
+                    return false;
+                }
+                i++;
+            }
+        }
+
+        // Find the common prefix with the last word and make sure the order holds
+        int common = 0;
+        while (common < n && common < prefixLength && letters[common] == prefix[common]) {
+            common++;
+        }
+        if ((common == n && n < prefixLength) || (common < n && common < prefixLength && letters[common] < prefix[common])) {
+            throw new IllegalArgumentException("Words must be sorted: " + word);
+        }
+
+        // Nodes below the common prefix are complete
+        close(common);
+
+        // Open the new branch
+        for (int i = common; i < n; i++) {
+            prefix[i] = letters[i];
+            isAWord[i + 1] = false;
+            entryCount[i + 1] = 0;
+            childMask[i + 1] = 0;
+            maxDepth[i + 1] = 0;
+            required[i + 1] = ALL_LETTERS;
+            wordCount[i + 1] = 0;
+        }
+        prefixLength = n;
+        isAWord[n] = true;
+        return true;
+    }
+
+    /**
+     * Completes the tree. The builder must not be used afterwards.
+     *
+     * @return The packed dictionary.
+     */
+    public PackedTrie build() {
+        close(0);
+
+        // The root goes into the slots reserved at offset 0
+        tree[0] = PackedTrie.hCompose(childMask[0], maxDepth[0]);
+        System.arraycopy(entries[0], 0, tree, 1, entryCount[0]);
+        rank(0, 0);
+        return new PackedTrie(Arrays.copyOf(tree, size), Arrays.copyOf(ranks, size), wordCount[0]);
+    }
+
+    /**
+     * Returns the number of nodes finished so far, counting merged nodes once per use.
+     *
+     * @return The number of nodes in the unminimized trie.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of ints the tree would take if no subtree was merged.
+     *
+     * @return The size of the unminimized trie in ints.
+     */
+    public int getUnminimizedSize() {
+        return unminimizedSize;
+    }
+
+    /**
+     * Returns the number of distinct nodes written so far.
+     *
+     * @return The number of nodes actually stored.
+     */
+    public int getStoredNodeCount() {
+        return minimize ? blockCount + 1 : nodeCount;
+    }
+
+    // Method to write out every open node deeper than level, deepest first
+    private void close(int level) {
+        for (int k = prefixLength; k > level; k--) {
+            int offset = emit(k);
+            byte letter = prefix[k - 1];
+
+            entryWords[k - 1][entryCount[k - 1]] = (isAWord[k] ? 1 : 0) + wordCount[k];
+            wordCount[k - 1] += entryWords[k - 1][entryCount[k - 1]];
+            entries[k - 1][entryCount[k - 1]++] = PackedTrie.dCompose(isAWord[k], (byte) (letter - 'A'), offset);
+            childMask[k - 1] |= 1 << (letter - 'A');
+            int depth = (letter == 'Q' ? 2 : 1) + maxDepth[k];
+            maxDepth[k - 1] = Math.max(maxDepth[k - 1], Math.min(depth, PackedTrie.MAX_DEPTH));
+
+            // The suffixes through this child need its letter, and unless the child ends a word, what every suffix below it needs
+            required[k - 1] &= (1 << (letter - 'A')) | (isAWord[k] ? 0 : required[k]);
+        }
+        prefixLength = Math.min(prefixLength, level);
+    }
+
+    // Method to append the open node at a level to the tree, returns its offset
+    private int emit(int level) {
+        int count = entryCount[level];
+        if (size + 1 + count > tree.length) {
+            tree = Arrays.copyOf(tree, Math.max(tree.length * 2, size + 1 + count));
+            ranks = Arrays.copyOf(ranks, tree.length);
+        }
+        if (size > 0x7fffff) {
+            throw new IllegalStateException("Dictionary too large for 23-bit child offsets");
+        }
+
+        int offset = size;
+        tree[offset] = PackedTrie.hCompose(childMask[level], maxDepth[level]);
+        System.arraycopy(entries[level], 0, tree, offset + 1, count);
+        nodeCount++;
+        unminimizedSize += 1 + count;
+
+        if (minimize) {
+            int existing = findBlock(offset, count);
+            if (existing != 0) {
+                return existing; // Leave the copy just written to be overwritten
+            }
+        }
+
+        rank(level, offset);
+        size += 1 + count;
+        return offset;
+    }
+
+    // Method to fill in the ranks of the open node at a level, written at offset: its required
+    // letters in the header slot, then the rank of each entry
+    private void rank(int level, int offset) {
+        ranks[offset] = entryCount[level] == 0 ? 0 : required[level];
+        int rank = 0;
+        for (int i = 0; i < entryCount[level]; i++) {
+            ranks[offset + 1 + i] = rank;
+            rank += entryWords[level][i];
+        }
+    }
+
+    // Method to find a written node equal to the one at offset, or to remember it if there is none
+    private int findBlock(int offset, int count) {
+        int hash = blockHash(offset, count);
+        int mask = blocks.length - 1;
+        for (int slot = hash & mask; blocks[slot] != 0; slot = (slot + 1) & mask) {
+            int other = blocks[slot] - 1;
+            if (tree[other] == tree[offset] && Arrays.equals(tree, other + 1, other + 1 + count, tree, offset + 1, offset + 1 + count)) {
+                return other;
+            }
+        }
+
+        // No equal node yet, keep this one (the table is kept at most half full)
+        if (2 * (blockCount + 1) > blocks.length) {
+            int[] old = blocks;
+            blocks = new int[old.length * 2];
+            blockCount = 0;
+            for (int stored : old) {
+                if (stored != 0) {
+                    insertBlock(stored - 1);
+                }
+            }
+        }
+        insertBlock(offset);
+        return 0;
+    }
+
+    // Method to add a written node to the block table
+    private void insertBlock(int offset) {
+        int hash = blockHash(offset, PackedTrie.hGetCount(tree[offset]));
+        int mask = blocks.length - 1;
+        int slot = hash & mask;
+        while (blocks[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        blocks[slot] = offset + 1;
+        blockCount++;
+    }
+
+    // Method to hash the header and entries of the node at offset
+    private int blockHash(int offset, int count) {
+        int hash = 0;
+        for (int i = 0; i <= count; i++) {
+            hash = hash * 31 + tree[offset + i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Priority queue of found words kept in flat arrays, for the DFS to fill without allocating.
+ *
+ * <p>Each word takes a slot holding its dictionary ordinal, its priority and the board cells of
+ * its path, one byte per cell. The slots are allocated once; the heap orders slot indices the
+ * same way {@link PriorityQueue} orders its nodes, so both keep and return the same words in the
+ * same order. Strings, Words and Locations are only built by the caller for the slots it
+ * extracts at the end.</p>
+ */
+public class PackedWordQueue {
+    private final int maxLength;       // Number of slots
+    private final int maxPathLength;   // Cells reserved per slot
+    private final int[] heap;          // Slot at each heap position, free slots past length
+    private final int[] ordinal;       // Dictionary ordinal of the word in each slot
+    private final int[] priority;      // Priority of the word in each slot
+    private final int[] pathLength;    // Number of cells on the path in each slot
+    private final byte[] paths;        // Cells of each slot's path, maxPathLength bytes per slot
+    private int length;                // Number of slots in use
+
+    /**
+     * Constructs a PackedWordQueue with the specified maximum length.
+     *
+     * @param length        The maximum number of words kept.
+     * @param maxPathLength The longest path that will be inserted.
+     */
+    public PackedWordQueue(final int length, final int maxPathLength) {
+        this.maxLength = length;
+        this.maxPathLength = maxPathLength;
+        heap = new int[length];
+        ordinal = new int[length];
+        priority = new int[length];
+        pathLength = new int[length];
+        paths = new byte[length * maxPathLength];
+        for (int i = 0; i < length; i++) {
+            heap[i] = i;
+        }
+        this.length = 0;
+    }
+
+    /**
+     * Returns the number of words in the queue.
+     *
+     * @return The current length.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Checks if the queue is full.
+     *
+     * @return True if the queue holds its maximum number of words, false otherwise.
+     */
+    public boolean isFull() {
+        return length == maxLength;
+    }
+
+    /**
+     * Returns the minimum priority in the queue.
+     *
+     * @return The minimum priority, or Integer.MIN_VALUE if the queue is empty.
+     */
+    public int peekMinPriority() {
+        if (length == 0) {
+            return Integer.MIN_VALUE;
+        }
+
+        return priority[heap[0]];
+    }
+
+    /**
+     * Removes every word from the queue so it can be reused.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * Inserts a word given by its ordinal and path. When the queue is full the word replaces
+     * the minimum if it has a higher priority, as in {@link PriorityQueue#insert}.
+     *
+     * @param ordinal  The dictionary ordinal of the word.
+     * @param priority Points associated with the word.
+     * @param cells    The cells of the path, copied into the slot.
+     * @param count    The number of cells on the path.
+     */
+    public void insert(final int ordinal, final int priority, final byte[] cells, final int count) {
+        int i;
+        if (!(length < maxLength)) {
+            if (length == 0 || priority <= this.priority[heap[0]]) {
+                return;
+            }
+            i = 0;
+        } else {
+            i = length++;
+        }
+
+        int slot = heap[i];
+        this.ordinal[slot] = ordinal;
+        this.priority[slot] = priority;
+        pathLength[slot] = count;
+        System.arraycopy(cells, 0, paths, slot * maxPathLength, count);
+
+        if (i == 0 && length == maxLength) {
+            heapify(0);
+            return;
+        }
+
+        // Move the new slot up while its parent has a higher priority
+        while (i != 0 && this.priority[heap[PriorityQueue.parentIndex(i)]] > priority) {
+            heap[i] = heap[PriorityQueue.parentIndex(i)];
+            heap[PriorityQueue.parentIndex(i)] = slot;
+            i = PriorityQueue.parentIndex(i);
+        }
+    }
+
+    /**
+     * Extracts the word with the minimum priority. Its slot stays readable until the next
+     * insert.
+     *
+     * @return The slot of the word, -1 if the queue is empty.
+     */
+    public int extractMin() {
+        if (length <= 0) {
+            return -1;
+        }
+
+        int slot = heap[0];
+        heap[0] = heap[length - 1];
+        heap[--length] = slot;
+
+        heapify(0);
+
+        return slot;
+    }
+
+    /**
+     * Gets the dictionary ordinal of the word in a slot.
+     *
+     * @param slot The slot.
+     * @return The ordinal.
+     */
+    public int getOrdinal(final int slot) {
+        return ordinal[slot];
+    }
+
+    /**
+     * Gets the priority of the word in a slot.
+     *
+     * @param slot The slot.
+     * @return The priority.
+     */
+    public int getPriority(final int slot) {
+        return priority[slot];
+    }
+
+    /**
+     * Gets the number of cells on the path of the word in a slot.
+     *
+     * @param slot The slot.
+     * @return The path length.
+     */
+    public int getPathLength(final int slot) {
+        return pathLength[slot];
+    }
+
+    /**
+     * Gets one cell of the path of the word in a slot.
+     *
+     * @param slot  The slot.
+     * @param index The index of the cell on the path.
+     * @return The cell.
+     */
+    public int getCell(final int slot, final int index) {
+        return paths[slot * maxPathLength + index];
+    }
+
+    // Method to move the slot at a heap position down below any child with a lower priority
+    private void heapify(int level) {
+        while (true) {
+            int leftIndex = PriorityQueue.leftChildIndex(level), rightIndex = PriorityQueue.rightChildIndex(level);
+            int minIndex = level;
+
+            if (leftIndex < length && priority[heap[leftIndex]] < priority[heap[minIndex]]) {
+                minIndex = leftIndex;
+            }
+            if (rightIndex < length && priority[heap[rightIndex]] < priority[heap[minIndex]]) {
+                minIndex = rightIndex;
+            }
+
+            if (level == minIndex) {
+                return;
+            }
+            int temp = heap[minIndex];
+            heap[minIndex] = heap[level];
+            heap[level] = temp;
+            level = minIndex;
+        }
+    }
+}
@@ -69,6 +69,8 @@ public class PriorityQueue {
 
     /**
      * Inserts a word (with its path) into the priority queue based on priority points.
+     * When the queue is full the word replaces the minimum if it has a higher priority,
+     * so the queue keeps the highest priority words seen so far.
      *
      * @param name     The word to insert.
      * @param priority Points associated with the word.
@@ -76,6 +78,10 @@ public class PriorityQueue {
      */
     public void insert(final String name, final int priority, final Graph path) {
         if (!(length < maxLength)) {
+            if (length > 0 && priority > data[0].priority) {
+                data[0] = new PQNode(name, priority, path);
+                heapify();
+            }
             return;
         }
 
@@ -0,0 +1,253 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of solved boards, shared by every thread of a {@link BogglePlayer}.
+ *
+ * <p>Rotating or reflecting a board maps its words one to one, with the paths moved the same
+ * way. A board is keyed by its canonical form: the smallest encoding over the transforms that
+ * keep its shape, 8 for a square board and 4 otherwise. Each cell takes 5 bits (the letter, or
+ * 31 for anything the solver doesn't treat as a letter), so boards up to 25 cells fit in 128
+ * bits; larger boards are not cached. The words are stored with their paths in canonical cells
+ * and mapped back through the transform of the board asked for.</p>
+ *
+ * <p>A hit returns the same words with the same scores as solving the board would. Where words
+ * tie for the last places kept, or a word has several paths, the solver's choice depends on the
+ * order it visits cells in, so it can differ between a board and its rotation.</p>
+ */
+public class SolutionCache {
+    private final int rows, cols;           // Board dimensions
+    private final int[][] source;           // Original cell of each canonical cell, per transform
+    private final int[][] target;           // Canonical cell of each original cell, per transform
+    private final LinkedHashMap<Key, Solution> solutions;  // Solutions, least recently used first
+    private long hits, misses, evictions;   // Counters, guarded by solutions
+
+    /**
+     * Canonical encoding of a board and the transform that produced it.
+     */
+    public static final class Key {
+        private final long high, low;       // Cell codes, canonical cell 0 in the highest bits used
+        private final int transform;        // Transform taking the board to its canonical form, not part of the key
+
+        private Key(long high, long low, int transform) {
+            this.high = high;
+            this.low = low;
+            this.transform = transform;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).high == high && ((Key) other).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 0x9E3779B97F4A7C15L ^ low);
+        }
+    }
+
+    // Words of a solved board in best first order, with paths in canonical cells
+    private static final class Solution {
+        final LiveDictionary dictionary;    // Dictionary version the board was solved with
+        final String[] words;               // Words
+        final int[] starts;                 // Start of each word's path in cells, plus the end
+        final byte[] cells;                 // Canonical cells of all the paths
+
+        Solution(LiveDictionary dictionary, String[] words, int[] starts, byte[] cells) {
+            this.dictionary = dictionary;
+            this.words = words;
+            this.starts = starts;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param rows     Number of board rows.
+     * @param cols     Number of board columns.
+     * @param capacity Number of boards kept.
+     */
+    public SolutionCache(int rows, int cols, final int capacity) {
+        this.rows = rows;
+        this.cols = cols;
+
+        // (r, c) goes to (r, c), (n-1-r, n-1-c), (r, n-1-c), (n-1-r, c), then on square boards
+        // also (c, r), (n-1-c, n-1-r), (c, n-1-r), (n-1-c, r)
+        int transforms = rows == cols ? 8 : 4;
+        int cells = rows * cols;
+        source = new int[transforms][cells];
+        target = new int[transforms][cells];
+        for (int t = 0; t < transforms; t++) {
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int newR = (t & 1) != 0 ? rows - 1 - r : r;
+                    int newC = (t & 1) != ((t >> 1) & 1) ? cols - 1 - c : c;
+                    if (t >= 4) {
+                        int swap = newR;
+                        newR = newC;
+                        newC = swap;
+                    }
+                    target[t][r * cols + c] = newR * cols + newC;
+                    source[t][newR * cols + newC] = r * cols + c;
+                }
+            }
+        }
+
+        solutions = new LinkedHashMap<Key, Solution>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Solution> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Computes the canonical key of a board.
+     *
+     * @param board The board.
+     * @return The key, null if the board can't be cached because of its size.
+     */
+    public Key key(char[][] board) {
+        if (rows * cols > 25 || board.length != rows) {
+            return null;
+        }
+        for (char[] row : board) {
+            if (row.length != cols) {
+                return null;
+            }
+        }
+
+        Key best = null;
+        for (int t = 0; t < source.length; t++) {
+            long high = 0, low = 0;
+            for (int cell : source[t]) {
+                char c = board[cell / cols][cell % cols];
+                high = (high << 5) | (low >>> 59);
+                low = (low << 5) | ('A' <= c && c <= 'Z' ? c - 'A' : 31);
+            }
+            if (best == null || Long.compareUnsigned(high, best.high) < 0 || (high == best.high && Long.compareUnsigned(low, best.low) < 0)) {
+                best = new Key(high, low, t);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Looks a board up.
+     *
+     * @param key        The key of the board.
+     * @param dictionary The dictionary version the words must come from.
+     * @return New Word objects with paths on the board the key was computed for, null on a miss.
+     */
+    public Word[] get(Key key, LiveDictionary dictionary) {
+        Solution solution;
+        synchronized (solutions) {
+            solution = solutions.get(key);
+            if (solution == null || solution.dictionary != dictionary) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        int[] source = this.source[key.transform];
+        Word[] words = new Word[solution.words.length];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = new Word(solution.words[i]);
+            for (int j = solution.starts[i]; j < solution.starts[i + 1]; j++) {
+                int cell = source[solution.cells[j]];
+                words[i].addLetterRowAndCol(cell / cols, cell % cols);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Stores the words found on a board.
+     *
+     * @param key        The key of the board.
+     * @param dictionary The dictionary version the words come from.
+     * @param words      The words, with paths on the board the key was computed for.
+     */
+    public void put(Key key, LiveDictionary dictionary, Word[] words) {
+        int[] target = this.target[key.transform];
+        String[] names = new String[words.length];
+        int[] starts = new int[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            names[i] = words[i].getWord();
+            starts[i + 1] = starts[i] + words[i].getPathLength();
+        }
+        byte[] cells = new byte[starts[words.length]];
+        for (int i = 0; i < words.length; i++) {
+            for (int j = 0; j < words[i].getPathLength(); j++) {
+                cells[starts[i] + j] = (byte) target[words[i].getLetterRow(j) * cols + words[i].getLetterCol(j)];
+            }
+        }
+
+        synchronized (solutions) {
+            solutions.put(key, new Solution(dictionary, names, starts, cells));
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found the board.
+     *
+     * @return The hit count.
+     */
+    public long getHits() {
+        synchronized (solutions) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that didn't find the board, or found it solved with another
+     * dictionary version.
+     *
+     * @return The miss count.
+     */
+    public long getMisses() {
+        synchronized (solutions) {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns the number of boards dropped to stay within the capacity.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictions() {
+        synchronized (solutions) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Returns the number of boards cached.
+     *
+     * @return The size.
+     */
+    public int size() {
+        synchronized (solutions) {
+            return solutions.size();
+        }
+    }
+
+    /**
+     * Returns the counters, for logging.
+     *
+     * @return The size, hits, misses and evictions.
+     */
+    @Override
+    public String toString() {
+        synchronized (solutions) {
+            return "SolutionCache[" + solutions.size() + " boards, " + hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counters and phase timers of the solver's hot path.
+ *
+ * <p>The solver calls the hooks below on every DFS step. In this class they are empty and
+ * {@link #NONE} is the instance used when metrics are off. As long as no recording instance has
+ * been created, nothing overrides the hooks, so the JIT inlines them to nothing and the
+ * arguments computed for them are dead code; the disabled path costs nothing. Once
+ * {@link #recording} has been called the hooks become a type check and a call.</p>
+ *
+ * <p>A recording instance is only updated by one thread at a time, the one running the solver
+ * it was given to. Each solver gets its own one from {@link #child}, and {@link #snapshot} sums
+ * a recording and all its children, so a player's totals are read from the root it handed the
+ * children out from. Values read while solvers run may be a few steps behind.</p>
+ *
+ * <p>Times are summed over solvers, so when several threads solve boards at once they add up to
+ * more than the wall-clock time. A parallel search times the whole board on the calling thread;
+ * its tasks only count nodes, probes, pruned branches and dedup hits.</p>
+ */
+public class SolverMetrics {
+    /**
+     * Metrics that record nothing.
+     */
+    public static final SolverMetrics NONE = new SolverMetrics();
+
+    // Constructor for NONE and the recording subclass
+    private SolverMetrics() {
+    }
+
+    /**
+     * Creates a root that records, for a player to hand children out from.
+     *
+     * @return The recording metrics.
+     */
+    public static SolverMetrics recording() {
+        return new Recording();
+    }
+
+    /**
+     * Creates the metrics of one solver, summed into this one's snapshot.
+     *
+     * @return A new recording child, or NONE if this doesn't record.
+     */
+    public SolverMetrics child() {
+        return NONE;
+    }
+
+    /**
+     * Checks if these metrics record, so callers can skip reading the clock.
+     *
+     * @return False here, true for a recording instance.
+     */
+    public boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Sums these metrics and all their children.
+     *
+     * @return The totals, all zero if this doesn't record.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    // Hook for a DFS step entering a node: header is its packed header, candidates the cells probed from it
+    void dfsCall(int header, long candidates) {
+    }
+
+    // Hook for a branch skipped by the score bound or the required letters
+    void pruned() {
+    }
+
+    // Hook for a word found again on the same board
+    void dedupHit() {
+    }
+
+    // Hook for a new word found on the board
+    void wordFound() {
+    }
+
+    // Hook for the end of a getWords call: time building the board, searching and materializing, and words returned
+    void getWords(long boardNanos, long searchNanos, long materializeNanos, int words) {
+    }
+
+    // Hook for the time spent building or loading the dictionary
+    void build(long nanos) {
+    }
+
+    // Metrics that count, updated by one thread at a time
+    private static final class Recording extends SolverMetrics {
+        private final List<Recording> children = new ArrayList<Recording>();  // Guarded by itself
+        private final Snapshot counts = new Snapshot();
+
+        @Override
+        public SolverMetrics child() {
+            Recording child = new Recording();
+            synchronized (children) {
+                children.add(child);
+            }
+            return child;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public Snapshot snapshot() {
+            Snapshot total = new Snapshot();
+            total.add(counts);
+            List<Recording> copy;
+            synchronized (children) {
+                copy = new ArrayList<Recording>(children);
+            }
+            for (Recording child : copy) {
+                total.add(child.snapshot());
+            }
+            return total;
+        }
+
+        @Override
+        void dfsCall(int header, long candidates) {
+            counts.dfsCalls++;
+            counts.probes += Long.bitCount(candidates);
+            counts.fanOut[PackedTrie.hGetCount(header)]++;
+        }
+
+        @Override
+        void pruned() {
+            counts.pruned++;
+        }
+
+        @Override
+        void dedupHit() {
+            counts.dedupHits++;
+        }
+
+        @Override
+        void wordFound() {
+            counts.wordsFound++;
+        }
+
+        @Override
+        void getWords(long boardNanos, long searchNanos, long materializeNanos, int words) {
+            counts.boards++;
+            counts.boardNanos += boardNanos;
+            counts.searchNanos += searchNanos;
+            counts.materializeNanos += materializeNanos;
+            counts.wordsEmitted += words;
+        }
+
+        @Override
+        void build(long nanos) {
+            counts.buildNanos += nanos;
+        }
+    }
+
+    /**
+     * Totals of a set of metrics, printable as a report or as one JSON line.
+     */
+    public static final class Snapshot {
+        public long boards;                 // getWords calls
+        public long dfsCalls;               // Nodes entered by the DFS, recursive calls or stack frames
+        public long probes;                 // Cells looked up in a node's children (hFindChild calls)
+        public final long[] fanOut = new long[27];  // Nodes entered, by number of children
+        public long pruned;                 // Branches skipped before being entered
+        public long dedupHits;              // Words found again on the same board
+        public long wordsFound;             // Distinct words found, before keeping the best; a parallel search only counts those its tasks kept
+        public long wordsEmitted;           // Words returned
+        public long buildNanos;             // Time building or loading the dictionary
+        public long boardNanos;             // Time checking and encoding the boards
+        public long searchNanos;            // Time in the DFS
+        public long materializeNanos;       // Time building the returned Words
+
+        // Method to add other's counts to these
+        private void add(Snapshot other) {
+            boards += other.boards;
+            dfsCalls += other.dfsCalls;
+            probes += other.probes;
+            for (int i = 0; i < fanOut.length; i++) {
+                fanOut[i] += other.fanOut[i];
+            }
+            pruned += other.pruned;
+            dedupHits += other.dedupHits;
+            wordsFound += other.wordsFound;
+            wordsEmitted += other.wordsEmitted;
+            buildNanos += other.buildNanos;
+            boardNanos += other.boardNanos;
+            searchNanos += other.searchNanos;
+            materializeNanos += other.materializeNanos;
+        }
+
+        /**
+         * Formats the totals as one line of JSON, for appending to a JSON lines file.
+         *
+         * @return The JSON object, without a line break.
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"boards\":").append(boards);
+            json.append(",\"dfsCalls\":").append(dfsCalls);
+            json.append(",\"probes\":").append(probes);
+            json.append(",\"fanOut\":[");
+            for (int i = 0; i < fanOut.length; i++) {
+                json.append(i == 0 ? "" : ",").append(fanOut[i]);
+            }
+            json.append("],\"pruned\":").append(pruned);
+            json.append(",\"dedupHits\":").append(dedupHits);
+            json.append(",\"wordsFound\":").append(wordsFound);
+            json.append(",\"wordsEmitted\":").append(wordsEmitted);
+            json.append(",\"buildNanos\":").append(buildNanos);
+            json.append(",\"boardNanos\":").append(boardNanos);
+            json.append(",\"searchNanos\":").append(searchNanos);
+            json.append(",\"materializeNanos\":").append(materializeNanos);
+            return json.append('}').toString();
+        }
+
+        /**
+         * Formats the totals as a report, with per-board averages.
+         *
+         * @return The report, several lines.
+         */
+        @Override
+        public String toString() {
+            double per = Math.max(boards, 1);
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("Boards: %d%n", boards));
+            report.append(String.format("DFS calls: %d (%.1f per board)%n", dfsCalls, dfsCalls / per));
+            report.append(String.format("Child probes: %d (%.1f per board)%n", probes, probes / per));
+            report.append(String.format("Pruned branches: %d (%.1f per board)%n", pruned, pruned / per));
+            report.append(String.format("Dedup hits: %d, words found: %d, words returned: %d%n", dedupHits, wordsFound, wordsEmitted));
+            report.append("Fan-out of nodes entered:");
+            for (int i = 0; i < fanOut.length; i++) {
+                if (fanOut[i] != 0) {
+                    report.append(' ').append(i).append(':').append(fanOut[i]);
+                }
+            }
+            report.append(String.format("%nTime in ms, build: %.3f, boards: %.3f, search: %.3f, materialize: %.3f%n",
+                                        buildNanos / 1e6, boardNanos / 1e6, searchNanos / 1e6, materializeNanos / 1e6));
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Implementation of {@link boggle.jmh.Bridge} in the unnamed package, next to the solver classes.
+ */
+public class BoggleBridge implements boggle.jmh.Bridge {
+    @Override
+    public Object newPlayer(String wordFile) {
+        return new BogglePlayer(wordFile);
+    }
+
+    @Override
+    public Object newPlayer(Object dictionary) {
+        return new BogglePlayer((PackedTrie) dictionary);
+    }
+
+    @Override
+    public Object buildTrie(String wordFile, boolean minimize) {
+        return new PackedTrie(wordFile, minimize);
+    }
+
+    @Override
+    public void saveImage(Object dictionary, String imageFile) {
+        try {
+            ((PackedTrie) dictionary).save(imageFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Object getWords(Object player, char[][] board) {
+        return ((BogglePlayer) player).getWords(board);
+    }
+
+    @Override
+    public char[][] rollBoard(Random rnd) {
+        return EvalBogglePlayer.rollBoard(rnd);
+    }
+
+    @Override
+    public void readDictionary(String wordFile) {
+        try {
+            EvalBogglePlayer.readDictionary(wordFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int calculatePoints(Object words, char[][] board) {
+        return EvalBogglePlayer.calculatePoints((Word[]) words, board);
+    }
+
+    @Override
+    public Object newDictionaryTrie() {
+        return new DictionaryTrie();
+    }
+
+    @Override
+    public boolean insertWord(Object trie, String word) {
+        return ((DictionaryTrie) trie).insertWord(word);
+    }
+
+    @Override
+    public boolean isValid(Object trie, String word) {
+        return ((DictionaryTrie) trie).isValid(word);
+    }
+
+    @Override
+    public Object newPriorityQueue(int length) {
+        return new PriorityQueue(length);
+    }
+
+    @Override
+    public void insert(Object queue, String name, int priority) {
+        ((PriorityQueue) queue).insert(name, priority, null);
+    }
+
+    @Override
+    public Object extractMin(Object queue) {
+        return ((PriorityQueue) queue).extractMin();
+    }
+}
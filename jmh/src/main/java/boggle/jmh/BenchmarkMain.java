@@ -0,0 +1,25 @@
+package boggle.jmh;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.RunnerException;
+
+/**
+ * Runs JMH's own command line with the GC profiler added, which also reports the allocation
+ * rate and the bytes allocated per operation. Every JMH option works as usual, for example
+ * "-l" to list the benchmarks, "-h" for help, "GetWords -p corpus=sparse" or
+ * "-p wordFile=/path/to/words.txt".
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String[] withProfiler = new String[args.length + 2];
+        withProfiler[0] = "-prof";
+        withProfiler[1] = "gc";
+        System.arraycopy(args, 0, withProfiler, 2, args.length);
+        Main.main(withProfiler);
+    }
+}
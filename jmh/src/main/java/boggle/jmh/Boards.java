@@ -0,0 +1,60 @@
+package boggle.jmh;
+
+import java.util.Random;
+
+/**
+ * Seeded corpora of 4x4 boards for the benchmarks.
+ */
+public final class Boards {
+    // Letters weighted roughly by English frequency, about 40% vowels
+    private static final String DENSE = "EEEEEEEEEEEEAAAAAAAAAIIIIIIIIIOOOOOOOOUUUU"
+            + "NNNNNNRRRRRRTTTTTTLLLLSSSSDDDDGGGBBCCMMPPFFHHVVWWYYKJXQZ";
+    // Mostly rare consonants, about 10% vowels
+    private static final String SPARSE = "BCDFGHJKLMNPQRSTVWXZBCDFGHJKLMNPQRSTVWXZBCDFGHJKLMNPQRSTVWXZ"
+            + "KQXZJVWKQXZJVWAEIOU";
+
+    private Boards() {
+    }
+
+    /**
+     * Generates a corpus of boards.
+     *
+     * @param bridge The bridge, used to roll dice boards.
+     * @param kind   "dice" for EvalBogglePlayer's dice, "dense" for vowel-rich boards with many
+     *               words, or "sparse" for vowel-poor boards with few words.
+     * @param count  The number of boards.
+     * @param seed   The seed.
+     * @return The boards.
+     */
+    public static char[][][] corpus(Bridge bridge, String kind, int count, long seed) {
+        Random rnd = new Random(seed);
+        char[][][] boards = new char[count][][];
+        for (int i = 0; i < count; i++) {
+            switch (kind) {
+                case "dice":
+                    boards[i] = bridge.rollBoard(rnd);
+                    break;
+                case "dense":
+                    boards[i] = fill(rnd, DENSE);
+                    break;
+                case "sparse":
+                    boards[i] = fill(rnd, SPARSE);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown corpus " + kind);
+            }
+        }
+        return boards;
+    }
+
+    // Method to draw every cell independently from a weighted letter string
+    private static char[][] fill(Random rnd, String letters) {
+        char[][] board = new char[4][4];
+        for (char[] row : board) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = letters.charAt(rnd.nextInt(letters.length()));
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,142 @@
+package boggle.jmh;
+
+import java.util.Random;
+
+/**
+ * Calls into the solver classes, which live in the unnamed package.
+ *
+ * <p>JMH refuses benchmark classes in the unnamed package, and a named package can't refer to
+ * unnamed-package types, so the benchmarks hold the solver objects as Object and go through
+ * this interface. It is implemented by BoggleBridge in the unnamed package and loaded once with
+ * {@link #load}; the calls themselves are plain monomorphic interface calls.</p>
+ */
+public interface Bridge {
+    /**
+     * Loads the unnamed-package implementation.
+     *
+     * @return The bridge.
+     */
+    static Bridge load() {
+        try {
+            return (Bridge) Class.forName("BoggleBridge").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BoggleBridge is missing from the classpath", e);
+        }
+    }
+
+    /**
+     * Constructs a BogglePlayer, which builds or loads the dictionary.
+     *
+     * @param wordFile The word file.
+     * @return The player.
+     */
+    Object newPlayer(String wordFile);
+
+    /**
+     * Constructs a BogglePlayer sharing an already built dictionary.
+     *
+     * @param dictionary The PackedTrie.
+     * @return The player.
+     */
+    Object newPlayer(Object dictionary);
+
+    /**
+     * Builds a PackedTrie from a word file, without looking for a saved image.
+     *
+     * @param wordFile The word file.
+     * @param minimize True to build a DAWG.
+     * @return The dictionary.
+     */
+    Object buildTrie(String wordFile, boolean minimize);
+
+    /**
+     * Saves a PackedTrie as a binary image.
+     *
+     * @param dictionary The PackedTrie.
+     * @param imageFile  The file to write.
+     */
+    void saveImage(Object dictionary, String imageFile);
+
+    /**
+     * Calls BogglePlayer.getWords.
+     *
+     * @param player The player.
+     * @param board  The board.
+     * @return The Word[] found.
+     */
+    Object getWords(Object player, char[][] board);
+
+    /**
+     * Rolls a board from the Boggle dice the way EvalBogglePlayer does.
+     *
+     * @param rnd The random generator.
+     * @return The board.
+     */
+    char[][] rollBoard(Random rnd);
+
+    /**
+     * Loads the evaluator's dictionary.
+     *
+     * @param wordFile The word file.
+     */
+    void readDictionary(String wordFile);
+
+    /**
+     * Scores a word list the way EvalBogglePlayer does.
+     *
+     * @param words The Word[] returned by getWords.
+     * @param board The board.
+     * @return The points.
+     */
+    int calculatePoints(Object words, char[][] board);
+
+    /**
+     * Constructs an empty DictionaryTrie.
+     *
+     * @return The trie.
+     */
+    Object newDictionaryTrie();
+
+    /**
+     * Calls DictionaryTrie.insertWord.
+     *
+     * @param trie The trie.
+     * @param word The word.
+     * @return The result of insertWord.
+     */
+    boolean insertWord(Object trie, String word);
+
+    /**
+     * Calls DictionaryTrie.isValid.
+     *
+     * @param trie The trie.
+     * @param word The word.
+     * @return The result of isValid.
+     */
+    boolean isValid(Object trie, String word);
+
+    /**
+     * Constructs a PriorityQueue.
+     *
+     * @param length The maximum length.
+     * @return The queue.
+     */
+    Object newPriorityQueue(int length);
+
+    /**
+     * Calls PriorityQueue.insert with no path.
+     *
+     * @param queue    The queue.
+     * @param name     The word.
+     * @param priority The priority.
+     */
+    void insert(Object queue, String name, int priority);
+
+    /**
+     * Calls PriorityQueue.extractMin.
+     *
+     * @param queue The queue.
+     * @return The node removed, null if the queue is empty.
+     */
+    Object extractMin(Object queue);
+}
@@ -0,0 +1,69 @@
+package boggle.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dictionary preprocessing: the BogglePlayer constructor from the word file and from a saved
+ * binary image, and building the packed trie or DAWG from the word file. The image is written
+ * to a temporary file at setup, so a words.txt.bin next to the word file is never picked up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DictionaryBuildBenchmark {
+    @Param("words.txt")
+    public String wordFile;
+
+    private Bridge bridge;
+    private File imageFile;
+
+    @Setup
+    public void setup() throws IOException {
+        bridge = Bridge.load();
+        imageFile = File.createTempFile("words", ".bin");
+        bridge.saveImage(bridge.buildTrie(wordFile, false), imageFile.getPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        imageFile.delete();
+    }
+
+    @Benchmark
+    public Object constructorFromWords() {
+        return bridge.newPlayer(bridge.buildTrie(wordFile, false));
+    }
+
+    @Benchmark
+    public Object constructorFromImage() {
+        return bridge.newPlayer(imageFile.getPath());
+    }
+
+    @Benchmark
+    public Object buildTrie() {
+        return bridge.buildTrie(wordFile, false);
+    }
+
+    @Benchmark
+    public Object buildDawg() {
+        return bridge.buildTrie(wordFile, true);
+    }
+}
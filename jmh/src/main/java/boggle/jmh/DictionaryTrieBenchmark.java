@@ -0,0 +1,90 @@
+package boggle.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * DictionaryTrie.insertWord and isValid; scores are per word.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryTrieBenchmark {
+    private static final int WORDS = 4096;
+
+    @Param("words.txt")
+    public String wordFile;
+
+    private Bridge bridge;
+    private Object trie;
+    private String[] inserted;
+    private String[] queries;
+
+    @Setup
+    public void setup() throws IOException {
+        bridge = Bridge.load();
+        List<String> words = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(wordFile))) {
+            words.add(line.trim());
+        }
+
+        trie = bridge.newDictionaryTrie();
+        for (String word : words) {
+            bridge.insertWord(trie, word);
+        }
+
+        // Half the queries are dictionary words, half are the same words with one letter changed
+        Random rnd = new Random(123456789);
+        Collections.shuffle(words, rnd);
+        inserted = words.subList(0, WORDS).toArray(new String[0]);
+        queries = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            char[] chars = inserted[i].toCharArray();
+            if (i % 2 == 1) {
+                chars[rnd.nextInt(chars.length)] = (char) ('a' + rnd.nextInt(26));
+            }
+            queries[i] = new String(chars);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public Object insertWord() {
+        Object fresh = bridge.newDictionaryTrie();
+        for (String word : inserted) {
+            bridge.insertWord(fresh, word);
+        }
+        return fresh;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void isValid(Blackhole bh) {
+        for (String word : queries) {
+            bh.consume(bridge.isValid(trie, word));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package boggle.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BogglePlayer.getWords over a fixed corpus of seeded boards; scores are per board.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetWordsBenchmark {
+    private static final int BOARDS = 256;
+
+    @Param("words.txt")
+    public String wordFile;
+
+    @Param({"dice", "dense", "sparse"})
+    public String corpus;
+
+    private Bridge bridge;
+    private Object player;
+    private char[][][] boards;
+
+    @Setup
+    public void setup() {
+        bridge = Bridge.load();
+        player = bridge.newPlayer(wordFile);
+        boards = Boards.corpus(bridge, corpus, BOARDS, 123456789);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void getWords(Blackhole bh) {
+        for (char[][] board : boards) {
+            bh.consume(bridge.getWords(player, board));
+        }
+    }
+}
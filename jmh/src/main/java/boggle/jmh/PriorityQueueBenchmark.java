@@ -0,0 +1,66 @@
+package boggle.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * PriorityQueue.insert then extractMin of every node; scores are per inserted word. With a
+ * capacity below the number of words, inserts past the capacity exercise the replace-minimum
+ * path used for the top 20 selection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityQueueBenchmark {
+    private static final int WORDS = 1024;
+
+    @Param({"20", "1024"})
+    public int capacity;
+
+    private Bridge bridge;
+    private String[] names;
+    private int[] priorities;
+
+    @Setup
+    public void setup() {
+        bridge = Bridge.load();
+        Random rnd = new Random(123456789);
+        names = new String[WORDS];
+        priorities = new int[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            names[i] = "WORD" + i;
+            int length = 3 + rnd.nextInt(8);
+            priorities[i] = (length - 2) * (length - 2);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void insertExtractMin(Blackhole bh) {
+        Object queue = bridge.newPriorityQueue(capacity);
+        for (int i = 0; i < WORDS; i++) {
+            bridge.insert(queue, names[i], priorities[i]);
+        }
+        Object node;
+        while ((node = bridge.extractMin(queue)) != null) {
+            bh.consume(node);
+        }
+    }
+}
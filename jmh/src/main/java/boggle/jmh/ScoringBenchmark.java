@@ -0,0 +1,62 @@
+package boggle.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EvalBogglePlayer.calculatePoints over the words found on a corpus of boards; scores are
+ * per board.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+    private static final int BOARDS = 64;
+
+    @Param("words.txt")
+    public String wordFile;
+
+    @Param({"dice", "dense"})
+    public String corpus;
+
+    private Bridge bridge;
+    private char[][][] boards;
+    private Object[] words;
+
+    @Setup
+    public void setup() {
+        bridge = Bridge.load();
+        bridge.readDictionary(wordFile);
+        Object player = bridge.newPlayer(wordFile);
+        boards = Boards.corpus(bridge, corpus, BOARDS, 123456789);
+        words = new Object[BOARDS];
+        for (int i = 0; i < BOARDS; i++) {
+            words[i] = bridge.getWords(player, boards[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int calculatePoints() {
+        int points = 0;
+        for (int i = 0; i < BOARDS; i++) {
+            points += bridge.calculatePoints(words[i], boards[i]);
+        }
+        return points;
+    }
+}